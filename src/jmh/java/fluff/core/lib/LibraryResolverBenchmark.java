@@ -0,0 +1,76 @@
+package fluff.core.lib;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import fluff.core.lib.source.MemorySource;
+import fluff.core.lib.v1.V1LibraryManager;
+
+/**
+ * Benchmarks resolving synthetic library graphs with {@link LibraryResolver#resolve(List)}.
+ * The library information is served from memory, so only parsing, linking and sorting are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LibraryResolverBenchmark {
+    
+    @Param({ "10", "100", "1000", "10000" })
+    public int libraries;
+    
+    @Param({ "1", "4", "16" })
+    public int fanOut;
+    
+    private List<URL> infos;
+    
+    @Setup(Level.Trial)
+    public void setup() throws MalformedURLException {
+        LibraryResolver.MANAGERS.put(V1LibraryManager.ID, new V1LibraryManager());
+        LibraryResolver.LOADED.clear();
+        LibraryResolver.PENDING.clear();
+        
+        MemorySource source = new MemorySource();
+        Random random = new Random(libraries * 31L + fanOut);
+        
+        source.add("fluff-core", "v1\nauthor muscaa\nid fluff-core\n");
+        for (int i = 0; i < libraries; i++) {
+            StringBuilder sb = new StringBuilder();
+            sb.append("v1\n");
+            sb.append("author bench\n");
+            sb.append("id lib").append(i).append("\n");
+            
+            int count = Math.min(i, fanOut);
+            if (count > 0) {
+                sb.append("depends ");
+                for (int j = 0; j < count; j++) {
+                    if (j > 0) sb.append(", ");
+                    sb.append("bench/lib").append(random.nextInt(i));
+                }
+                sb.append("\n");
+            }
+            
+            source.add("lib" + i, sb.toString());
+        }
+        
+        infos = source.find();
+    }
+    
+    @Benchmark
+    public List<ResolvedLibrary> resolve() throws LibraryException {
+        return LibraryResolver.resolve(new ArrayList<>(infos));
+    }
+}
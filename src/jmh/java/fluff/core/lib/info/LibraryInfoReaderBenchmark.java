@@ -0,0 +1,63 @@
+package fluff.core.lib.info;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import fluff.core.lib.LibraryException;
+
+/**
+ * Benchmarks parsing library information with many properties, comments and continuation lines.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LibraryInfoReaderBenchmark {
+    
+    @Param({ "10", "100" })
+    public int properties;
+    
+    @Param({ "0", "10", "1000" })
+    public int continuations;
+    
+    @Param({ "0", "4" })
+    public int comments;
+    
+    private String info;
+    
+    @Setup(Level.Trial)
+    public void setup() {
+        StringBuilder sb = new StringBuilder();
+        
+        for (int i = 0; i < properties; i++) {
+            for (int j = 0; j < comments; j++) {
+                sb.append("# comment ").append(j).append(" of property ").append(i).append("\n");
+            }
+            
+            sb.append("key").append(i).append(" value").append(i);
+            if (i == 0) {
+                for (int j = 0; j < continuations; j++) {
+                    sb.append(", \\\n    author/library").append(j);
+                }
+            }
+            sb.append(" # trailing comment\n\n");
+        }
+        
+        info = sb.toString();
+    }
+    
+    @Benchmark
+    public LibraryInfoReader read() throws LibraryException {
+        return new LibraryInfoReader(new BufferedReader(new StringReader(info)));
+    }
+}
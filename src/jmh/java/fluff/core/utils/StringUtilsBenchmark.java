@@ -0,0 +1,71 @@
+package fluff.core.utils;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks {@link StringUtils#format(String, Object...)} and {@link StringTemplate} with different argument counts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StringUtilsBenchmark {
+    
+    @Param({ "0", "1", "4", "16" })
+    public int arguments;
+    
+    private String text;
+    private Object[] args;
+    private StringTemplate template;
+    private StringBuilder sb;
+    
+    @Setup(Level.Trial)
+    public void setup() {
+        StringBuilder sb = new StringBuilder("Request");
+        args = new Object[arguments];
+        
+        for (int i = 0; i < arguments; i++) {
+            sb.append(" arg").append(i).append("=${}");
+            args[i] = i % 2 == 0 ? "value" + i : Integer.valueOf(i);
+        }
+        sb.append(" done");
+        
+        text = sb.toString();
+        template = StringUtils.compile(text);
+        this.sb = new StringBuilder();
+    }
+    
+    @Benchmark
+    public String format() {
+        return StringUtils.format(text, args);
+    }
+    
+    @Benchmark
+    public String compiled() {
+        return template.format(args);
+    }
+    
+    @Benchmark
+    public StringBuilder appendTo() {
+        sb.setLength(0);
+        return template.appendTo(sb, args);
+    }
+    
+    @Benchmark
+    public StringBuilder formatter() {
+        StringFormatter f = StringFormatter.get().start(template);
+        for (Object arg : args) {
+            f.arg(arg);
+        }
+        return f.finish();
+    }
+}
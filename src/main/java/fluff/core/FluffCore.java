@@ -1,14 +1,40 @@
 package fluff.core;
 
+import java.io.File;
+import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
+import java.util.ServiceLoader;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import fluff.core.lib.ILibrary;
 import fluff.core.lib.ILibraryManager;
+import fluff.core.lib.LibraryArchive;
+import fluff.core.lib.LibraryCache;
+import fluff.core.lib.LibraryException;
+import fluff.core.lib.LibraryPipeline;
 import fluff.core.lib.LibraryResolver;
+import fluff.core.lib.LibraryValidationReport;
+import fluff.core.lib.LibraryValidator;
 import fluff.core.lib.ResolvedLibrary;
+import fluff.core.lib.profile.ChromeTraceListener;
+import fluff.core.lib.profile.LibraryPhase;
+import fluff.core.lib.profile.LibraryProfiler;
+import fluff.core.lib.source.ClassLoaderSource;
+import fluff.core.lib.source.DirectorySource;
+import fluff.core.lib.source.ILibrarySource;
+import fluff.core.lib.source.LibrarySources;
 import fluff.core.lib.v1.V1LibraryManager;
 import fluff.core.lib.v1.LibraryMain;
 
@@ -19,31 +45,428 @@ import fluff.core.lib.v1.LibraryMain;
  */
 public class FluffCore {
     
-    private static boolean INITIALIZED = false;
+    /**
+     * Latch of the initialization, set by the first caller and completed once it's done,
+     * so concurrent callers wait for it instead of initializing again.
+     */
+    private static final AtomicReference<CompletableFuture<Void>> INIT = new AtomicReference<>();
+    private static volatile Thread INITIALIZING;
+    
+    private static final List<ILibrarySource> SOURCES = new CopyOnWriteArrayList<>();
+    private static volatile ClassLoader LOADER = FluffCore.class.getClassLoader();
+    
+    /**
+     * The time in milliseconds each library is given to shut down, unless the
+     * {@code fluff.shutdown.timeout} system property is set.
+     */
+    private static final long SHUTDOWN_TIMEOUT = 10000;
+    private static final AtomicBoolean SHUTDOWN_HOOK = new AtomicBoolean();
     
     /**
      * Initializes the Fluff library system.
+     * If it's already being initialized by another thread, waits for it to finish instead,
+     * and throws the same exception if it failed.
+     * A failed initialization can't be retried, since the libraries it loaded stay loaded:
+     * later calls throw the same exception.
      * 
      * @throws Exception if there is an error during initialization
      */
     @LibraryMain
     public static void init() throws Exception {
-        if (INITIALIZED) return;
+        init(null);
+    }
+    
+    /**
+     * Initializes the Fluff library system, loading each library on the specified executor
+     * as soon as all of its dependencies are loaded. With an executor, library information is read
+     * while the sources are still searched and libraries start loading before all of them are found.
+     * Precompiled library indexes are preferred over the library information next to them.
+     * Besides the classpath, libraries are found in the added sources and, if the {@code fluff.plugins}
+     * system property is set, in the plugin directories it lists.
+     * If the {@code fluff.cache} system property is set, the resolved libraries are cached
+     * in the file it points to and reused on the next start, as long as the library
+     * information on the classpath doesn't change.
+     * If the {@code fluff.isolated} system property is true, each library is loaded with its own class loader.
+     * Unless the {@code fluff.prefetch} system property is false, the classes of the libraries are
+     * loaded in the background as soon as they're resolved.
+     * If the {@code fluff.trace} system property is set, the time spent in each phase of
+     * the initialization is written to the file it points to in the Chrome trace format.
+     * Unless the {@code fluff.shutdown.hook} system property is false, the libraries are
+     * shut down with {@link #shutdown()} when the JVM exits.
+     * If the {@code fluff.cds} system property is set, the class data archive it points to is kept
+     * in sync with the libraries by {@link LibraryArchive}: written once they're loaded if the JVM
+     * is recording and it's missing, deleted if the JVM uses it but the libraries changed.
+     * An archive that can't be updated doesn't fail the initialization, the failure is reported to the
+     * {@link LibraryProfiler} listeners instead.
+     * 
+     * @param executor the executor to load libraries on, or {@code null} to load them sequentially
+     * @throws Exception if there is an error during initialization
+     */
+    public static void init(Executor executor) throws Exception {
+        init(executor, false);
+    }
+    
+    /**
+     * Initializes the Fluff library system lazily. All libraries are resolved, but each library
+     * is only loaded, together with its dependencies, the first time it's requested through
+     * {@link #require(String)} or {@link #findLib(String)}.
+     * 
+     * @throws Exception if there is an error during initialization
+     */
+    public static void initLazy() throws Exception {
+        init(null, true);
+    }
+    
+    private static void init(Executor executor, boolean lazy) throws Exception {
+        CompletableFuture<Void> init = new CompletableFuture<>();
+        CompletableFuture<Void> current = INIT.compareAndExchange(null, init);
+        if (current != null) {
+            // a library can't wait for its own initialization, whether it's loaded on the initializing thread or on the executor
+            if (INITIALIZING != Thread.currentThread() && !LibraryResolver.isLoading()) await(current);
+            return;
+        }
         
-        register(new V1LibraryManager());
+        INITIALIZING = Thread.currentThread();
+        try {
+            initialize(executor, lazy);
+            
+            init.complete(null);
+        } catch (Throwable e) {
+            init.completeExceptionally(e);
+            throw e;
+        } finally {
+            INITIALIZING = null;
+        }
+    }
+    
+    private static void await(CompletableFuture<Void> init) throws Exception {
+        try {
+            init.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) throw cause;
+            throw (Error) e.getCause();
+        }
+    }
+    
+    /**
+     * Initializes the Fluff library system without blocking the calling thread.
+     * Libraries are discovered, resolved and loaded on the specified executor, each one as soon as
+     * all of its dependencies are loaded. Libraries whose {@link LibraryMain} methods return a
+     * {@link CompletableFuture} keep loading in the background, and only their dependents wait for them.
+     * The same system properties as {@link #init(Executor)} apply, except {@code fluff.cache}.
+     * If the library system is already initialized or being initialized, the future of that initialization is returned,
+     * including a failed one, since a failed initialization can't be retried.
+     * Only an initialization the executor rejected before it started can be tried again.
+     * 
+     * @param executor the executor to initialize the library system on
+     * @return a future completing once all libraries are loaded, or with the first failure
+     */
+    public static CompletableFuture<Void> initAsync(Executor executor) {
+        Objects.requireNonNull(executor);
         
-        ClassLoader loader = FluffCore.class.getClassLoader();
+        CompletableFuture<Void> init = new CompletableFuture<>();
+        CompletableFuture<Void> current = INIT.compareAndExchange(null, init);
+        if (current != null) return current;
         
-        List<URL> infos = new ArrayList<>();
-        loader.getResources("fluff_lib.info")
-                .asIterator()
-                .forEachRemaining(url -> {
-                    infos.add(url);
+        String trace = System.getProperty("fluff.trace");
+        ChromeTraceListener listener = new ChromeTraceListener();
+        if (trace != null) LibraryProfiler.addListener(listener);
+        
+        CompletableFuture<LibraryPipeline> pipeline;
+        try {
+            pipeline = CompletableFuture.supplyAsync(() -> new LibraryPipeline(prepare(), executor), executor);
+        } catch (RejectedExecutionException e) {
+            if (trace != null) LibraryProfiler.removeListener(listener);
+            
+            INIT.compareAndSet(init, null); // nothing was loaded, the next caller can try again
+            init.completeExceptionally(e);
+            return init;
+        }
+        
+        pipeline.thenCompose(FluffCore::start)
+                .whenComplete((v, e) -> {
+                    if (e instanceof CompletionException) e = e.getCause();
+                    
+                    if (trace != null) {
+                        LibraryProfiler.removeListener(listener);
+                        
+                        try {
+                            listener.write(Path.of(trace));
+                        } catch (IOException ex) {
+                            if (e == null) e = ex;
+                            else e.addSuppressed(ex);
+                        }
+                    }
+                    
+                    if (e == null) {
+                        init.complete(null);
+                        return;
+                    }
+                    
+                    init.completeExceptionally(e);
+                });
+        
+        return init;
+    }
+    
+    private static void initialize(Executor executor, boolean lazy) throws Exception {
+        String trace = System.getProperty("fluff.trace");
+        ChromeTraceListener listener = new ChromeTraceListener();
+        if (trace != null) LibraryProfiler.addListener(listener);
+        
+        Throwable failure = null;
+        try {
+            List<ILibrarySource> sources = prepare();
+            List<URL> infos;
+            
+            String cache = System.getProperty("fluff.cache");
+            if (executor != null && !lazy && cache == null) {
+                LibraryPipeline pipeline = new LibraryPipeline(sources, executor);
+                await(start(pipeline));
+                infos = pipeline.getInfos();
+            } else {
+                infos = discover(sources);
+                
+                ClassLoader loader = FluffCore.class.getClassLoader();
+                for (ILibrarySource source : sources) {
+                    loader = source.getClassLoader(loader);
+                }
+                LOADER = loader;
+                
+                if (lazy) {
+                    LibraryResolver.resolveLazy(infos);
+                } else if (cache != null) {
+                    new LibraryCache(Path.of(cache)).resolveAndLoad(LOADER, infos, executor);
+                } else {
+                    LibraryResolver.resolveAndLoad(LOADER, infos, null);
+                }
+            }
+            
+            String cds = System.getProperty("fluff.cds");
+            if (!lazy && cds != null) {
+                long archive = LibraryProfiler.start();
+                try {
+                    LibraryArchive.update(Path.of(cds), infos);
+                    LibraryProfiler.record(LibraryPhase.ARCHIVE, null, archive);
+                } catch (LibraryException e) {
+                    LibraryProfiler.fail(LibraryPhase.ARCHIVE, null, e); // the libraries are loaded, only the next start is slower
+                }
+            }
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            if (trace != null) {
+                LibraryProfiler.removeListener(listener);
+                
+                try {
+                    listener.write(Path.of(trace));
+                } catch (IOException e) {
+                    if (failure == null) throw e;
+                    failure.addSuppressed(e); // the failure of the initialization matters more
+                }
+            }
+        }
+    }
+    
+    /**
+     * Collects the library sources, registers the default library manager and sets up
+     * the options the libraries are loaded with.
+     * 
+     * @return the list of library sources
+     */
+    private static List<ILibrarySource> prepare() {
+        registerDefaults();
+        
+        if (Boolean.getBoolean("fluff.isolated")) LibraryResolver.setIsolated(true);
+        if (!Boolean.parseBoolean(System.getProperty("fluff.prefetch", "true"))) LibraryResolver.setPrefetch(false);
+        if (Boolean.parseBoolean(System.getProperty("fluff.shutdown.hook", "true"))) addShutdownHook();
+        
+        return sources(FluffCore.class.getClassLoader());
+    }
+    
+    /**
+     * Discovers, resolves and loads the libraries of the pipeline, then sets up the
+     * class loader of the sources for the libraries loaded later.
+     * 
+     * @param pipeline the pipeline of the sources
+     * @return a future completing once all libraries are loaded
+     */
+    private static CompletableFuture<Void> start(LibraryPipeline pipeline) {
+        return pipeline.start(FluffCore.class.getClassLoader())
+                .whenComplete((v, e) -> {
+                    ClassLoader loader = pipeline.getClassLoader();
+                    if (loader != null) LOADER = loader;
                 });
+    }
+    
+    /**
+     * Collects the library sources: the classpath, the plugin directories listed in the
+     * {@code fluff.plugins} system property, the {@link ILibrarySource} services and the added sources.
+     * 
+     * @param loader the class loader of the classpath
+     * @return the list of library sources
+     */
+    private static List<ILibrarySource> sources(ClassLoader loader) {
+        List<ILibrarySource> sources = new ArrayList<>();
+        sources.add(new ClassLoaderSource(loader));
+        
+        String plugins = System.getProperty("fluff.plugins");
+        if (plugins != null) {
+            for (String directory : plugins.split(File.pathSeparator)) {
+                if (!directory.isBlank()) sources.add(new DirectorySource(Path.of(directory.trim())));
+            }
+        }
+        
+        ServiceLoader.load(ILibrarySource.class, loader).forEach(sources::add);
+        sources.addAll(SOURCES);
+        
+        return sources;
+    }
+    
+    /**
+     * Registers the library managers built into fluff-core.
+     */
+    private static void registerDefaults() {
+        register(new V1LibraryManager());
+    }
+    
+    /**
+     * Finds the library information of all the sources.
+     * 
+     * @param sources the sources to search the library information in
+     * @return the list of library information URLs
+     * @throws IOException if an I/O error occurs
+     */
+    private static List<URL> discover(List<ILibrarySource> sources) throws IOException {
+        return LibrarySources.find(sources);
+    }
+    
+    /**
+     * Validates the library information of all the sources, without loading any library.
+     * Every problem is reported at once: properties missing or invalid for the schema of the
+     * library manager, overlapping tags, missing dependencies and every dependency cycle.
+     * 
+     * @return the report of the problems found
+     * @throws IOException if an I/O error occurs
+     */
+    public static LibraryValidationReport validate() throws IOException {
+        registerDefaults();
+        
+        return LibraryValidator.validate(discover(sources(FluffCore.class.getClassLoader())));
+    }
+    
+    /**
+     * Adds a source to search libraries in during the initialization.
+     * Sources have to be added before {@link #init()} is called.
+     * 
+     * @param source the {@link ILibrarySource} to add
+     */
+    public static void addSource(ILibrarySource source) {
+        SOURCES.add(source);
+    }
+    
+    /**
+     * Loads the libraries of the specified source at runtime, initializing the library system first
+     * if it isn't initialized yet. Libraries of the source that are already loaded are skipped,
+     * so a source can be plugged again to load only what was added to it since.
+     * 
+     * @param source the {@link ILibrarySource} to load the new libraries of
+     * @return the newly loaded libraries
+     * @throws Exception if there is an error finding, resolving or loading the libraries
+     */
+    public static Collection<ILibrary> plug(ILibrarySource source) throws Exception {
+        return plug(source, null);
+    }
+    
+    /**
+     * Loads the libraries of the specified source at runtime, initializing the library system first
+     * if it isn't initialized yet. Libraries of the source that are already loaded are skipped,
+     * so a source can be plugged again to load only what was added to it since.
+     * 
+     * @param source the {@link ILibrarySource} to load the new libraries of
+     * @param executor the executor to load libraries on, or {@code null} to load them sequentially
+     * @return the newly loaded libraries
+     * @throws Exception if there is an error finding, resolving or loading the libraries
+     */
+    public static Collection<ILibrary> plug(ILibrarySource source, Executor executor) throws Exception {
+        init();
         
-        LibraryResolver.resolveAndLoad(loader, infos);
+        synchronized (FluffCore.class) {
+            List<URL> infos = source.find();
+            
+            ClassLoader loader = source.getClassLoader(LOADER);
+            LOADER = loader;
+            
+            return LibraryResolver.plug(loader, infos, executor)
+                    .stream()
+                    .map(r -> r.library)
+                    .toList();
+        }
+    }
+    
+    /**
+     * Unloads a library, together with every library that depends on it, calling their shutdown hooks.
+     * Libraries loaded with the {@code fluff.isolated} system property set can be garbage collected
+     * afterwards, as long as the program doesn't keep references to them or their classes.
+     * 
+     * @param tag the tag of the library to unload
+     * @return the unloaded libraries, dependents first
+     * @throws LibraryException if a library fails to unload
+     */
+    public static Collection<ILibrary> unload(String tag) throws LibraryException {
+        return LibraryResolver.unload(tag)
+                .stream()
+                .map(r -> r.library)
+                .toList();
+    }
+    
+    /**
+     * Shuts down all libraries, calling their shutdown hooks in the reverse order of their dependencies.
+     * Libraries that don't depend on each other are shut down concurrently, and each library is
+     * given the number of milliseconds set by the {@code fluff.shutdown.timeout} system property,
+     * 10 seconds by default, before its dependencies are shut down without waiting for it.
+     * The library system can be initialized again afterwards.
+     * 
+     * @return the libraries that were shut down, dependents first
+     * @throws LibraryException if a library fails or times out, after all of them are shut down
+     */
+    public static Collection<ILibrary> shutdown() throws LibraryException {
+        return shutdown(null, Long.getLong("fluff.shutdown.timeout", SHUTDOWN_TIMEOUT));
+    }
+    
+    /**
+     * Shuts down all libraries, calling their shutdown hooks in the reverse order of their dependencies.
+     * Libraries that don't depend on each other are shut down concurrently on the executor.
+     * 
+     * @param executor the executor to shut libraries down on, or {@code null} to use daemon threads
+     * @param timeout the time in milliseconds each library is given to shut down
+     * @return the libraries that were shut down, dependents first
+     * @throws LibraryException if a library fails or times out, after all of them are shut down
+     */
+    public static Collection<ILibrary> shutdown(Executor executor, long timeout) throws LibraryException {
+        synchronized (FluffCore.class) {
+            try {
+                return LibraryResolver.shutdown(executor, timeout)
+                        .stream()
+                        .map(r -> r.library)
+                        .toList();
+            } finally {
+                INIT.set(null);
+            }
+        }
+    }
+    
+    private static void addShutdownHook() {
+        if (!SHUTDOWN_HOOK.compareAndSet(false, true)) return;
         
-        INITIALIZED = true;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                shutdown();
+            } catch (LibraryException e) {
+                LibraryProfiler.fail(LibraryPhase.UNLOAD, null, e); // the JVM is exiting, nothing can handle it
+            }
+        }, "fluff-shutdown-hook"));
     }
     
     /**
@@ -70,12 +493,40 @@ public class FluffCore {
     
     /**
      * Finds and retrieves a library by its tag.
+     * Loaded libraries are found without locking, so it's safe to call from any thread.
+     * If the library is waiting to be loaded on demand, it's loaded first.
      * 
      * @param tag the tag of the library to find
      * @return the {@link ILibrary} instance associated with the tag, or {@code null} if not found
+     * @throws IllegalStateException if the library fails to load on demand
      */
     public static ILibrary findLib(String tag) {
+        if (tag == null) return null;
+        
     	ResolvedLibrary r = LibraryResolver.LOADED.get(tag);
-        return r != null ? r.library : null;
+        if (r != null) return r.library;
+        
+        if (!LibraryResolver.PENDING.containsKey(tag)) return null;
+        
+        try {
+            return require(tag);
+        } catch (LibraryException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * Retrieves a library by its tag, loading it and its dependencies first
+     * if it's waiting to be loaded on demand.
+     * 
+     * @param tag the tag of the library
+     * @return the {@link ILibrary} instance associated with the tag
+     * @throws LibraryException if the library is missing or fails to load
+     */
+    public static ILibrary require(String tag) throws LibraryException {
+        ResolvedLibrary r = LibraryResolver.require(LOADER, tag);
+        if (r == null) throw new LibraryException("Missing library: " + tag);
+        
+        return r.library;
     }
 }
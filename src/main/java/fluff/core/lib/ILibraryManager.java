@@ -1,7 +1,14 @@
 package fluff.core.lib;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
+import fluff.core.lib.info.LibraryInfoBuffer;
+import fluff.core.lib.info.LibraryInfoSchema;
 
 /**
  * Represents a library manager responsible for creating, loading, and managing libraries.
@@ -20,6 +27,30 @@ public interface ILibraryManager<V extends ILibrary> {
      */
     V create(BufferedReader reader) throws LibraryException, IOException;
     
+    /**
+     * Creates a library instance from the library data between the position and the limit of the given buffer.
+     * The default implementation reads the buffer through {@link #create(BufferedReader)}.
+     *
+     * @param info the buffer to read library data from, positioned after the manager ID.
+     * @return the created library instance.
+     * @throws LibraryException if an error occurs during library creation.
+     * @throws IOException if an I/O error occurs.
+     */
+    default V create(ByteBuffer info) throws LibraryException, IOException {
+        ByteArrayInputStream in;
+        if (info.hasArray()) {
+            in = new ByteArrayInputStream(info.array(), info.arrayOffset() + info.position(), info.remaining());
+        } else {
+            byte[] bytes = new byte[info.remaining()];
+            info.get(info.position(), bytes);
+            in = new ByteArrayInputStream(bytes);
+        }
+        
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, LibraryInfoBuffer.CHARSET))) {
+            return create(reader);
+        }
+    }
+    
     /**
      * Loads the given library using the specified class loader.
      *
@@ -29,6 +60,55 @@ public interface ILibraryManager<V extends ILibrary> {
      */
     void load(ClassLoader loader, V library) throws LibraryException;
     
+    /**
+     * Prepares the given library to be loaded, on a background thread as soon as it's resolved,
+     * while other libraries are still loading. Implementations can load the classes the library
+     * needs, but must not initialize them or run any library code. Failures should be ignored,
+     * they're reported when the library is loaded. The default implementation does nothing.
+     *
+     * @param loader the ClassLoader the library will be loaded with.
+     * @param library the library to prepare.
+     */
+    default void prefetch(ClassLoader loader, V library) {}
+    
+    /**
+     * Starts loading the given library using the specified class loader, returning a future
+     * that completes once the library finished loading. Libraries that depend on it are only
+     * loaded after the future completes, while independent libraries keep loading.
+     * The default implementation loads the library through {@link #load(ClassLoader, ILibrary)}.
+     *
+     * @param loader the ClassLoader to use for loading the library.
+     * @param library the library to load.
+     * @return a future completing once the library is loaded.
+     * @throws LibraryException if an error occurs while starting to load the library.
+     */
+    default CompletableFuture<?> loadAsync(ClassLoader loader, V library) throws LibraryException {
+        load(loader, library);
+        
+        return CompletableFuture.completedFuture(null);
+    }
+    
+    /**
+     * Unloads the given library, releasing what it acquired when it was loaded.
+     * The default implementation does nothing.
+     *
+     * @param loader the ClassLoader the library was loaded with.
+     * @param library the library to unload.
+     * @throws LibraryException if an error occurs during library unloading.
+     */
+    default void unload(ClassLoader loader, V library) throws LibraryException {}
+    
+    /**
+     * Gets the schema of the library information this manager reads, used to validate it
+     * without creating the library. The default implementation returns null, in which case
+     * the information is only validated by creating the library.
+     *
+     * @return the schema, or null if there isn't one.
+     */
+    default LibraryInfoSchema getSchema() {
+        return null;
+    }
+    
     /**
      * Gets a tag for the given library.
      *
@@ -0,0 +1,172 @@
+package fluff.core.lib;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import fluff.core.FluffCore;
+
+/**
+ * Creates and checks an Application Class Data Sharing archive of the classes loaded while the libraries are loaded,
+ * so later starts map them from the archive instead of loading and verifying them again.
+ * A JVM can't start using an archive once it's running, so the archive is created by a training run and used by
+ * starting the JVM with {@code -XX:SharedArchiveFile=<archive>}. A training run is either this class's main method,
+ * or any start with {@code -XX:+RecordDynamicDumpInfo} and the {@code fluff.cds} system property pointing to a
+ * missing archive, which is then written right after the libraries are loaded.
+ * Next to the archive, a fingerprint of the library information is kept, and an archive that no longer matches
+ * the libraries is deleted, so the next start records a new one.
+ */
+public class LibraryArchive {
+    
+    private static final String FINGERPRINT_SUFFIX = ".fingerprint";
+    
+    /**
+     * Checks if the JVM was started with the specified archive and class data sharing is enabled.
+     *
+     * @param archive the path of the archive.
+     * @return true if the JVM uses the archive, false otherwise.
+     */
+    public static boolean isUsed(Path archive) {
+        String shared = option("SharedArchiveFile");
+        if (shared == null || shared.isEmpty()) return false;
+        
+        // a dynamic archive can be specified after its base archive, separated by the path separator
+        String[] files = shared.split(java.io.File.pathSeparator);
+        return matches(files[files.length - 1], archive) && System.getProperty("java.vm.info", "").contains("sharing");
+    }
+    
+    /**
+     * Checks if the JVM was started with {@code -XX:+RecordDynamicDumpInfo}, so {@link #dump(Path)} can write an archive.
+     *
+     * @return true if the JVM can write an archive while running, false otherwise.
+     */
+    public static boolean isRecording() {
+        return "true".equals(option("RecordDynamicDumpInfo"));
+    }
+    
+    /**
+     * Writes an archive of the classes loaded so far, replacing the existing one.
+     * The JVM must have been started with {@code -XX:+RecordDynamicDumpInfo}.
+     *
+     * @param archive the path of the archive.
+     * @throws LibraryException if the archive couldn't be written.
+     */
+    public static void dump(Path archive) throws LibraryException {
+        Path file = archive.toAbsolutePath();
+        
+        String output;
+        try {
+            Files.deleteIfExists(file);
+            
+            output = String.valueOf(ManagementFactory.getPlatformMBeanServer().invoke(
+                    new ObjectName("com.sun.management:type=DiagnosticCommand"),
+                    "vmCds",
+                    new Object[] { new String[] { "dynamic_dump", file.toString() } },
+                    new String[] { String[].class.getName() }));
+        } catch (IOException | JMException | RuntimeException e) { // the diagnostic command rethrows its failures unchecked
+            throw new LibraryException(e);
+        }
+        
+        if (!Files.exists(file)) throw new LibraryException("Couldn't write the class data archive: " + output.trim());
+    }
+    
+    /**
+     * Keeps the archive in sync with the loaded libraries, called once the libraries are loaded.
+     * If the JVM uses the archive but the library information changed since it was written, it's deleted.
+     * If the JVM is recording and the archive is missing, it's written.
+     *
+     * @param archive the path of the archive.
+     * @param infos the information URLs of the loaded libraries.
+     * @throws LibraryException if the archive couldn't be written.
+     */
+    public static void update(Path archive, List<URL> infos) throws LibraryException {
+        Path stamp = archive.resolveSibling(archive.getFileName() + FINGERPRINT_SUFFIX);
+        
+        try {
+            String fingerprint = LibraryCache.fingerprint(infos);
+            
+            if (isUsed(archive)) {
+                if (!Files.exists(stamp) || !Files.readString(stamp).equals(fingerprint)) {
+                    Files.deleteIfExists(stamp);
+                    delete(archive);
+                }
+                return;
+            }
+            
+            if (matches(option("ArchiveClassesAtExit"), archive)) {
+                Files.writeString(stamp, fingerprint); // the JVM writes the archive itself when it exits
+                return;
+            }
+            
+            if (isRecording() && !Files.exists(archive)) {
+                dump(archive);
+                Files.writeString(stamp, fingerprint);
+            }
+        } catch (IOException e) {
+            throw new LibraryException(e);
+        }
+    }
+    
+    /**
+     * Training run: loads the libraries and writes the archive of the classes they loaded.
+     * The JVM must be started with the same class path as the program, and either with
+     * {@code -XX:ArchiveClassesAtExit=<archive>} or with {@code -XX:+RecordDynamicDumpInfo}.
+     * <b>Usage</b>: java -XX:ArchiveClassesAtExit=app.jsa -cp &lt;classpath&gt; fluff.core.lib.LibraryArchive app.jsa
+     *
+     * @param args the path of the archive.
+     * @throws Exception if the libraries fail to load or the archive couldn't be written.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) {
+            System.err.println("Usage: LibraryArchive <archive>");
+            System.exit(2);
+        }
+        
+        Path archive = Path.of(args[0]);
+        if (!isRecording() && !matches(option("ArchiveClassesAtExit"), archive)) {
+            throw new LibraryException("Start the JVM with -XX:ArchiveClassesAtExit=" + archive + " or -XX:+RecordDynamicDumpInfo");
+        }
+        
+        Files.deleteIfExists(archive);
+        System.setProperty("fluff.cds", archive.toString());
+        
+        FluffCore.init();
+    }
+    
+    /**
+     * Deletes a stale archive. The JVM maps the archive it uses, and a mapped file can't be
+     * deleted on every platform, so it's deleted when the JVM exits instead.
+     *
+     * @param archive the path of the archive.
+     */
+    private static void delete(Path archive) {
+        try {
+            Files.deleteIfExists(archive);
+        } catch (IOException e) {
+            archive.toFile().deleteOnExit();
+        }
+    }
+    
+    private static boolean matches(String file, Path archive) {
+        if (file == null || file.isEmpty()) return false;
+        
+        return Path.of(file).toAbsolutePath().normalize().equals(archive.toAbsolutePath().normalize());
+    }
+    
+    private static String option(String name) {
+        try {
+            HotSpotDiagnosticMXBean bean = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            return bean != null ? bean.getVMOption(name).getValue() : null;
+        } catch (IllegalArgumentException e) {
+            return null; // not a HotSpot JVM, or an option it doesn't have
+        }
+    }
+}
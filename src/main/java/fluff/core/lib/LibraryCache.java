@@ -0,0 +1,325 @@
+package fluff.core.lib;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * On-disk cache of the resolved and sorted library set, keyed by a fingerprint of the information URLs.
+ * When the fingerprint matches, the libraries are created from the cached information and loaded in the
+ * cached order, without opening the information URLs or sorting the dependency graph again.
+ * Otherwise the libraries are resolved normally and the cache is rewritten.
+ */
+public class LibraryCache {
+    
+    private static final int VERSION = 1;
+    
+    private final Path file;
+    
+    /**
+     * Constructs a new LibraryCache stored in the specified file.
+     *
+     * @param file the file to store the cache in.
+     */
+    public LibraryCache(Path file) {
+        this.file = file;
+    }
+    
+    /**
+     * Resolves and loads libraries using the cache if it matches the information URLs,
+     * falling back to {@link LibraryResolver#resolveAndLoad(ClassLoader, List, Executor)} otherwise.
+     *
+     * @param loader the ClassLoader to use for loading libraries.
+     * @param infos the list of URLs containing library information.
+     * @param executor the executor to load libraries on, or null to load them sequentially.
+     * @throws LibraryException if there is an error resolving or loading libraries.
+     */
+    public void resolveAndLoad(ClassLoader loader, List<URL> infos, Executor executor) throws LibraryException {
+        String fingerprint;
+        try {
+            fingerprint = fingerprint(infos);
+        } catch (IOException e) {
+            LibraryResolver.resolveAndLoad(loader, infos, executor);
+            return;
+        }
+        
+        List<List<Entry>> rounds = read(fingerprint, infos);
+        if (rounds != null) {
+            load(loader, rounds, executor);
+            return;
+        }
+        
+        rounds = new ArrayList<>();
+        
+        WaitingDescriptors waiting = new WaitingDescriptors();
+        List<LibraryDescriptor> ready = LibraryDescriptor.read(infos);
+        while (!ready.isEmpty()) {
+            List<ResolvedLibrary> resolved = LibraryResolver.resolve(ready, waiting, false);
+            
+            LibraryResolver.load(loader, resolved, executor);
+            
+            rounds.add(entries(resolved, ready));
+            ready = waiting.wake();
+        }
+        
+        if (!waiting.isEmpty()) throw new LibraryException("Couldn't resolve libraries!");
+        
+        write(fingerprint, rounds);
+    }
+    
+    private void load(ClassLoader loader, List<List<Entry>> rounds, Executor executor) throws LibraryException {
+        for (int i = 0; i < rounds.size(); i++) {
+            List<Entry> round = rounds.get(i);
+            
+            if (!canCreate(round)) {
+                List<URL> remaining = new ArrayList<>();
+                for (List<Entry> r : rounds.subList(i, rounds.size())) {
+                    for (Entry e : r) {
+                        remaining.add(e.url);
+                    }
+                }
+                
+                LibraryResolver.resolveAndLoad(loader, remaining, executor);
+                return;
+            }
+            
+            LibraryResolver.load(loader, create(round), executor);
+        }
+    }
+    
+    private boolean canCreate(List<Entry> round) {
+        for (Entry e : round) {
+            if (!LibraryResolver.MANAGERS.containsKey(e.manager)) return false;
+        }
+        return true;
+    }
+    
+    private List<ResolvedLibrary> create(List<Entry> round) throws LibraryException {
+        List<ResolvedLibrary> sorted = new ArrayList<>();
+        Map<String, ResolvedLibrary> resolved = new HashMap<>();
+        
+        for (Entry e : round) {
+            ILibraryManager manager = LibraryResolver.MANAGERS.get(e.manager);
+            
+            try {
+                ILibrary library = manager.create(ByteBuffer.wrap(e.info));
+                ResolvedLibrary r = new ResolvedLibrary(manager, library, e.url);
+                
+                if (LibraryResolver.LOADED.containsKey(r.tag)) throw new LibraryException("Library already loaded: " + r.tag);
+                if (resolved.containsKey(r.tag)) throw new LibraryException("Overlapping library tag: " + r.tag);
+                
+                for (String tag : library.getDependencies()) {
+                    if (LibraryResolver.LOADED.containsKey(tag)) {
+                        r.link(LibraryResolver.LOADED.get(tag));
+                    } else if (resolved.containsKey(tag)) {
+                        r.link(resolved.get(tag));
+                    } else {
+                        throw new LibraryException("Missing library: " + tag);
+                    }
+                }
+                
+                resolved.put(r.tag, r);
+                sorted.add(r);
+            } catch (IOException ex) {
+                throw new LibraryException(ex);
+            }
+        }
+        
+        return sorted;
+    }
+    
+    private List<Entry> entries(List<ResolvedLibrary> resolved, List<LibraryDescriptor> descriptors) {
+        Map<URL, LibraryDescriptor> byURL = new IdentityHashMap<>(); // URL.equals can resolve host names
+        for (LibraryDescriptor d : descriptors) {
+            byURL.put(d.url, d);
+        }
+        
+        List<Entry> entries = new ArrayList<>();
+        for (ResolvedLibrary r : resolved) {
+            ByteBuffer info = byURL.get(r.source).info();
+            
+            byte[] bytes = new byte[info.remaining()];
+            info.get(bytes);
+            entries.add(new Entry(r.manager.getID(), r.source, bytes));
+        }
+        
+        return entries;
+    }
+    
+    /**
+     * Reads the cached rounds if the cache matches the fingerprint.
+     * The cached URLs are matched to the information URLs by their external form instead of being
+     * parsed again, since URLs of custom sources can't be constructed without their handler.
+     *
+     * @param fingerprint the fingerprint of the information URLs.
+     * @param infos the information URLs.
+     * @return the cached rounds, or null if the cache is missing, stale or corrupted.
+     */
+    private List<List<Entry>> read(String fingerprint, List<URL> infos) {
+        if (!Files.isRegularFile(file)) return null;
+        
+        Map<String, URL> byForm = new HashMap<>();
+        for (URL url : infos) {
+            byForm.put(url.toExternalForm(), url);
+        }
+        
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            if (in.readInt() != VERSION) return null;
+            if (!in.readUTF().equals(fingerprint)) return null;
+            
+            List<List<Entry>> rounds = new ArrayList<>();
+            
+            int roundCount = in.readInt();
+            if (roundCount < 0 || roundCount > in.available()) return null;
+            
+            for (int i = 0; i < roundCount; i++) {
+                List<Entry> round = new ArrayList<>();
+                
+                int count = in.readInt();
+                if (count < 0 || count > in.available()) return null;
+                
+                for (int j = 0; j < count; j++) {
+                    String manager = in.readUTF();
+                    URL url = byForm.get(in.readUTF());
+                    if (url == null) return null;
+                    
+                    int length = in.readInt();
+                    if (length < 0 || length > in.available()) return null; // corrupted, don't allocate it
+                    
+                    byte[] info = new byte[length];
+                    in.readFully(info);
+                    
+                    round.add(new Entry(manager, url, info));
+                }
+                
+                rounds.add(round);
+            }
+            
+            return rounds;
+        } catch (IOException e) {
+            return null; // corrupted cache, resolve again
+        }
+    }
+    
+    private void write(String fingerprint, List<List<Entry>> rounds) {
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            
+            Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temp))) {
+                out.writeInt(VERSION);
+                out.writeUTF(fingerprint);
+                
+                out.writeInt(rounds.size());
+                for (List<Entry> round : rounds) {
+                    out.writeInt(round.size());
+                    
+                    for (Entry e : round) {
+                        out.writeUTF(e.manager);
+                        out.writeUTF(e.url.toExternalForm());
+                        out.writeInt(e.info.length);
+                        out.write(e.info);
+                    }
+                }
+            }
+            
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // the cache is only an optimization, the next start will resolve again
+        }
+    }
+    
+    /**
+     * Computes a fingerprint of the specified information URLs.
+     * Files and jar files are identified by their size and last modification time,
+     * other URLs by the hash of their content.
+     *
+     * @param infos the list of URLs containing library information.
+     * @return the fingerprint of the URLs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public static String fingerprint(List<URL> infos) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        
+        for (URL url : infos) {
+            digest.update(url.toString().getBytes(StandardCharsets.UTF_8));
+            
+            Path path = localFile(url);
+            if (path != null) {
+                digest.update(longBytes(Files.size(path)));
+                digest.update(longBytes(Files.getLastModifiedTime(path).toMillis()));
+            } else {
+                try (InputStream in = url.openStream()) {
+                    digest.update(in.readAllBytes());
+                }
+            }
+        }
+        
+        return HexFormat.of().formatHex(digest.digest());
+    }
+    
+    private static Path localFile(URL url) throws IOException {
+        try {
+            if (url.getProtocol().equals("file")) return Path.of(url.toURI());
+            
+            if (url.getProtocol().equals("jar")) {
+                URLConnection connection = url.openConnection();
+                
+                if (connection instanceof JarURLConnection jar) {
+                    URL jarFile = jar.getJarFileURL();
+                    
+                    if (jarFile.getProtocol().equals("file")) return Path.of(jarFile.toURI());
+                }
+            }
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+        return null;
+    }
+    
+    private static byte[] longBytes(long value) {
+        byte[] bytes = new byte[8];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (value >>> (i * 8));
+        }
+        return bytes;
+    }
+    
+    private static class Entry {
+        
+        private final String manager;
+        private final URL url;
+        private final byte[] info;
+        
+        private Entry(String manager, URL url, byte[] info) {
+            this.manager = manager;
+            this.url = url;
+            this.info = info;
+        }
+    }
+}
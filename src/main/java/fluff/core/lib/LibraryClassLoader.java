@@ -0,0 +1,198 @@
+package fluff.core.lib;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import fluff.core.lib.source.ClassLoaderSource;
+import fluff.core.lib.v1.LibraryIndexProcessor;
+
+/**
+ * Class loader of a single library in isolated mode.
+ * Classes are searched in the library itself first, then in the libraries it depends on,
+ * and last in the parent class loader, so each library only sees its declared dependencies
+ * and can be garbage collected once it's unloaded.
+ * Classes of the platform, of the core and of the classpath of the core are always loaded by the parent,
+ * so a library bundling its own copy of them still shares them with the core and the other libraries.
+ * Libraries on the classpath of the core keep using the parent class loader, so their classes aren't
+ * loaded a second time next to the ones the application and the core use. Plugins are isolated.
+ */
+public class LibraryClassLoader extends URLClassLoader {
+    
+    static {
+        ClassLoader.registerAsParallelCapable();
+    }
+    
+    /**
+     * Packages always loaded by the parent class loader.
+     */
+    private static final String[] SHARED = { "java.", "javax.", "jdk.", "sun.", "com.sun.", "fluff.core." };
+    
+    private final List<LibraryClassLoader> dependencies;
+    
+    private LibraryClassLoader(String tag, URL[] urls, ClassLoader parent, List<LibraryClassLoader> dependencies) {
+        super("fluff:" + tag, urls, parent);
+        
+        this.dependencies = dependencies;
+    }
+    
+    /**
+     * Creates the class loader of the specified library, using the class loaders of its dependencies.
+     * Libraries packaged with the core, without a known location or on the classpath of the core use the parent class loader.
+     *
+     * @param r the library, with its dependencies already loaded.
+     * @param parent the class loader to fall back to.
+     * @return the class loader of the library.
+     */
+    static ClassLoader create(ResolvedLibrary r, ClassLoader parent) {
+        URL root = root(r.source);
+        if (root == null || root.toExternalForm().equals(core())) return parent;
+        if (Classpath.INFOS.contains(r.source.toExternalForm())) return parent;
+        
+        Set<LibraryClassLoader> dependencies = new LinkedHashSet<>();
+        for (ResolvedLibrary dependency : r.dependencies) {
+            if (dependency.getClassLoader() instanceof LibraryClassLoader loader) {
+                dependencies.add(loader);
+                dependencies.addAll(loader.dependencies);
+            }
+        }
+        
+        return new LibraryClassLoader(r.tag, new URL[] { root }, parent, new ArrayList<>(dependencies));
+    }
+    
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        if (isShared(name)) return super.loadClass(name, resolve);
+        
+        Class<?> c = findOwnClass(name);
+        
+        for (int i = 0; c == null && i < dependencies.size(); i++) {
+            c = dependencies.get(i).findOwnClass(name);
+        }
+        
+        if (c == null) return super.loadClass(name, resolve);
+        
+        if (resolve) resolveClass(c);
+        return c;
+    }
+    
+    @Override
+    public URL getResource(String name) {
+        URL url = findResource(name);
+        
+        for (int i = 0; url == null && i < dependencies.size(); i++) {
+            url = dependencies.get(i).findResource(name);
+        }
+        
+        return url != null ? url : super.getResource(name);
+    }
+    
+    /**
+     * Checks if a class has to be loaded by the parent: it's in a shared package or on the classpath of the core.
+     *
+     * @param name the binary name of the class.
+     * @return true if the class is shared, false if the libraries can define their own.
+     */
+    private static boolean isShared(String name) {
+        for (String prefix : SHARED) {
+            if (name.startsWith(prefix)) return true;
+        }
+        
+        ClassLoader classpath = LibraryClassLoader.class.getClassLoader();
+        return classpath != null && classpath.getResource(name.replace('.', '/') + ".class") != null;
+    }
+    
+    private Class<?> findOwnClass(String name) {
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> c = findLoadedClass(name);
+            if (c != null) return c;
+            
+            try {
+                return findClass(name);
+            } catch (ClassNotFoundException e) {
+                return null;
+            }
+        }
+    }
+    
+    /**
+     * Gets the location of the classes of a library from the URL of its information.
+     *
+     * @param info the URL of the library information.
+     * @return the jar or directory containing the library, or null if it isn't a file.
+     */
+    private static URL root(URL info) {
+        if (info == null) return null;
+        
+        try {
+            if (info.getProtocol().equals("jar")) {
+                String spec = info.toExternalForm();
+                int separator = spec.lastIndexOf("!/");
+                
+                return separator != -1 ? new URL(spec.substring("jar:".length(), separator)) : null;
+            }
+            if (info.getProtocol().equals("file")) return new URL(info, ".");
+        } catch (MalformedURLException e) {
+            return null;
+        }
+        return null;
+    }
+    
+    private static String core() {
+        CodeSource source = LibraryClassLoader.class.getProtectionDomain().getCodeSource();
+        
+        return source != null && source.getLocation() != null ? source.getLocation().toExternalForm() : null;
+    }
+    
+    /**
+     * The library information and indexes found by the class loader of the core, searched once
+     * the first time a library is isolated. A library whose information is among them is on the
+     * classpath of the core, which already loads its classes.
+     */
+    private static class Classpath {
+        
+        private static final Set<String> INFOS = find();
+        
+        private static Set<String> find() {
+            Set<String> infos = new HashSet<>();
+            
+            ClassLoader classpath = LibraryClassLoader.class.getClassLoader();
+            if (classpath == null) return infos;
+            
+            try {
+                for (String name : new String[] { ClassLoaderSource.INFO, LibraryIndexProcessor.INDEX }) {
+                    Enumeration<URL> urls = classpath.getResources(name);
+                    while (urls.hasMoreElements()) {
+                        infos.add(urls.nextElement().toExternalForm());
+                    }
+                }
+            } catch (IOException e) {
+                // can't tell, isolate them
+            }
+            return infos;
+        }
+    }
+    
+    /**
+     * Closes the class loader of an unloaded library, if it has its own.
+     *
+     * @param loader the class loader of the library.
+     */
+    static void close(ClassLoader loader) {
+        if (!(loader instanceof LibraryClassLoader l)) return;
+        
+        try {
+            l.close();
+        } catch (IOException e) {
+            // the classes are released anyway once the loader is unreachable
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package fluff.core.lib;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import fluff.core.lib.info.LibraryInfoBuffer;
+import fluff.core.lib.source.LibrarySources;
+
+/**
+ * The library information of a URL, read once and kept until its library manager creates the library,
+ * so waiting for the manager to be registered doesn't read the URL again.
+ */
+class LibraryDescriptor {
+    
+    /**
+     * The URL the information was read from.
+     */
+    final URL url;
+    
+    /**
+     * The ID of the library manager in the first line, or null if the information is empty.
+     */
+    final String manager;
+    
+    private final ByteBuffer info;
+    
+    private LibraryDescriptor(URL url, String manager, ByteBuffer info) {
+        this.url = url;
+        this.manager = manager;
+        this.info = info;
+    }
+    
+    /**
+     * Gets the information after the library manager ID.
+     *
+     * @return a new buffer of the information, so it can be read again.
+     */
+    ByteBuffer info() {
+        return info.duplicate();
+    }
+    
+    /**
+     * Reads the library information of the specified URLs and their library manager IDs.
+     *
+     * @param urls the URLs containing library information.
+     * @return the descriptors, in the same order.
+     * @throws LibraryException if a URL can't be read.
+     */
+    static List<LibraryDescriptor> read(List<URL> urls) throws LibraryException {
+        List<ByteBuffer> buffers;
+        try {
+            buffers = LibrarySources.read(urls);
+        } catch (IOException e) {
+            throw new LibraryException(e);
+        }
+        
+        List<LibraryDescriptor> descriptors = new ArrayList<>(urls.size());
+        for (int i = 0; i < urls.size(); i++) {
+            descriptors.add(of(urls.get(i), buffers.get(i)));
+        }
+        return descriptors;
+    }
+    
+    /**
+     * Reads the library manager ID of the library information in the buffer.
+     *
+     * @param url the URL the information was read from.
+     * @param buffer the content of the URL.
+     * @return the descriptor.
+     */
+    static LibraryDescriptor of(URL url, ByteBuffer buffer) {
+        String manager = LibraryInfoBuffer.readHeader(buffer);
+        
+        return new LibraryDescriptor(url, manager, buffer.slice());
+    }
+}
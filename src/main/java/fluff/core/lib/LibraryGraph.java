@@ -0,0 +1,260 @@
+package fluff.core.lib;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact dependency graph of a batch of resolved libraries.
+ * Each library is identified by an int ID, its position in the batch, and the edges between
+ * libraries of the batch are stored in arrays, so sorting and cycle detection don't allocate
+ * per library. Links to libraries outside the batch are ignored.
+ */
+public class LibraryGraph {
+    
+    private final ResolvedLibrary[] libraries;
+    private final Map<String, Integer> ids;
+    
+    private final int[] dependencyStart;
+    private final int[] dependencyList;
+    private final int[] dependentStart;
+    private final int[] dependentList;
+    
+    /**
+     * Constructs a LibraryGraph of the specified libraries, using their links to find the edges.
+     *
+     * @param libraries the linked libraries of the batch.
+     */
+    public LibraryGraph(List<ResolvedLibrary> libraries) {
+        int size = libraries.size();
+        
+        this.libraries = libraries.toArray(new ResolvedLibrary[size]);
+        this.ids = new HashMap<>(size * 4 / 3 + 1);
+        for (int i = 0; i < size; i++) {
+            ids.put(this.libraries[i].tag, i);
+        }
+        
+        dependencyStart = new int[size + 1];
+        for (int i = 0; i < size; i++) {
+            int count = 0;
+            for (ResolvedLibrary dependency : this.libraries[i].dependencies) {
+                if (indexOf(dependency) != -1) count++;
+            }
+            dependencyStart[i + 1] = dependencyStart[i] + count;
+        }
+        
+        int[] inverse = new int[size + 1];
+        dependencyList = new int[dependencyStart[size]];
+        for (int i = 0; i < size; i++) {
+            int edge = dependencyStart[i];
+            for (ResolvedLibrary dependency : this.libraries[i].dependencies) {
+                int id = indexOf(dependency);
+                if (id == -1) continue;
+                
+                dependencyList[edge++] = id;
+                inverse[id + 1]++;
+            }
+        }
+        
+        dependentStart = new int[size + 1];
+        for (int i = 0; i < size; i++) {
+            dependentStart[i + 1] = dependentStart[i] + inverse[i + 1];
+        }
+        
+        int[] next = Arrays.copyOf(dependentStart, size);
+        dependentList = new int[dependencyList.length];
+        for (int i = 0; i < size; i++) {
+            for (int edge = dependencyStart[i]; edge < dependencyStart[i + 1]; edge++) {
+                dependentList[next[dependencyList[edge]]++] = i;
+            }
+        }
+    }
+    
+    /**
+     * Gets the number of libraries in the graph.
+     *
+     * @return the number of libraries.
+     */
+    public int size() {
+        return libraries.length;
+    }
+    
+    /**
+     * Gets the library with the specified ID.
+     *
+     * @param id the ID of the library.
+     * @return the library.
+     */
+    public ResolvedLibrary get(int id) {
+        return libraries[id];
+    }
+    
+    /**
+     * Gets the ID of the library with the specified tag.
+     *
+     * @param tag the tag of the library.
+     * @return the ID of the library, or -1 if it isn't part of the graph.
+     */
+    public int indexOf(String tag) {
+        Integer id = ids.get(tag);
+        return id != null ? id : -1;
+    }
+    
+    /**
+     * Gets the ID of the specified library.
+     *
+     * @param r the library.
+     * @return the ID of the library, or -1 if it isn't part of the graph.
+     */
+    public int indexOf(ResolvedLibrary r) {
+        int id = indexOf(r.tag);
+        return id != -1 && libraries[id] == r ? id : -1;
+    }
+    
+    /**
+     * Gets the IDs of the libraries the specified library depends on.
+     *
+     * @param id the ID of the library.
+     * @return the IDs of its dependencies in the graph.
+     */
+    public int[] dependencies(int id) {
+        return Arrays.copyOfRange(dependencyList, dependencyStart[id], dependencyStart[id + 1]);
+    }
+    
+    /**
+     * Gets the IDs of the libraries that depend on the specified library.
+     *
+     * @param id the ID of the library.
+     * @return the IDs of its dependents in the graph.
+     */
+    public int[] dependents(int id) {
+        return Arrays.copyOfRange(dependentList, dependentStart[id], dependentStart[id + 1]);
+    }
+    
+    /**
+     * Counts the dependencies of every library in the graph.
+     *
+     * @return the number of dependencies of each library, indexed by ID.
+     */
+    public int[] inDegrees() {
+        int[] degrees = new int[libraries.length];
+        for (int i = 0; i < libraries.length; i++) {
+            degrees[i] = dependencyStart[i + 1] - dependencyStart[i];
+        }
+        return degrees;
+    }
+    
+    /**
+     * Sorts the libraries so each one comes after all of its dependencies.
+     * Libraries that are part of a cycle, or depend on one, are left out.
+     *
+     * @return the sorted libraries.
+     */
+    public List<ResolvedLibrary> sort() {
+        int[] degrees = inDegrees();
+        int[] queue = new int[libraries.length];
+        int head = 0;
+        int tail = 0;
+        
+        for (int i = 0; i < libraries.length; i++) {
+            if (degrees[i] == 0) queue[tail++] = i;
+        }
+        
+        while (head < tail) {
+            int current = queue[head++];
+            
+            for (int edge = dependentStart[current]; edge < dependentStart[current + 1]; edge++) {
+                int dependent = dependentList[edge];
+                
+                if (--degrees[dependent] == 0) queue[tail++] = dependent;
+            }
+        }
+        
+        List<ResolvedLibrary> sorted = new ArrayList<>(tail);
+        for (int i = 0; i < tail; i++) {
+            sorted.add(libraries[queue[i]]);
+        }
+        return sorted;
+    }
+    
+    /**
+     * Finds every dependency cycle in the graph, using an iterative version of
+     * Tarjan's strongly connected components algorithm.
+     *
+     * @return the libraries of each cycle.
+     */
+    public List<List<ResolvedLibrary>> cycles() {
+        int size = libraries.length;
+        int[] index = new int[size];
+        int[] low = new int[size];
+        boolean[] onStack = new boolean[size];
+        int[] stack = new int[size];
+        int[] callStack = new int[size];
+        int[] callEdge = new int[size];
+        int stackSize = 0;
+        int counter = 1;
+        
+        List<List<ResolvedLibrary>> cycles = new ArrayList<>();
+        
+        for (int root = 0; root < size; root++) {
+            if (index[root] != 0) continue;
+            
+            int depth = 0;
+            callStack[0] = root;
+            callEdge[0] = dependencyStart[root];
+            index[root] = low[root] = counter++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+            
+            while (depth >= 0) {
+                int v = callStack[depth];
+                
+                if (callEdge[depth] < dependencyStart[v + 1]) {
+                    int w = dependencyList[callEdge[depth]++];
+                    
+                    if (index[w] == 0) {
+                        index[w] = low[w] = counter++;
+                        stack[stackSize++] = w;
+                        onStack[w] = true;
+                        
+                        depth++;
+                        callStack[depth] = w;
+                        callEdge[depth] = dependencyStart[w];
+                    } else if (onStack[w]) {
+                        low[v] = Math.min(low[v], index[w]);
+                    }
+                    continue;
+                }
+                
+                if (low[v] == index[v]) {
+                    List<ResolvedLibrary> component = new ArrayList<>();
+                    int w;
+                    do {
+                        w = stack[--stackSize];
+                        onStack[w] = false;
+                        component.add(libraries[w]);
+                    } while (w != v);
+                    
+                    if (component.size() > 1 || hasSelfLoop(v)) cycles.add(component);
+                }
+                
+                depth--;
+                if (depth >= 0) {
+                    int parent = callStack[depth];
+                    low[parent] = Math.min(low[parent], low[v]);
+                }
+            }
+        }
+        
+        return cycles;
+    }
+    
+    private boolean hasSelfLoop(int id) {
+        for (int edge = dependencyStart[id]; edge < dependencyStart[id + 1]; edge++) {
+            if (dependencyList[edge] == id) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,378 @@
+package fluff.core.lib;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+import fluff.core.lib.info.LibraryInfoBuffer;
+import fluff.core.lib.profile.LibraryPhase;
+import fluff.core.lib.profile.LibraryProfiler;
+import fluff.core.lib.source.ILibrarySource;
+
+/**
+ * Discovers, resolves and loads libraries as a pipeline instead of one step after the other.
+ * Each library information is parsed on the executor as soon as its source finds it, added to the
+ * dependency graph as soon as it's parsed, and loaded as soon as all of its dependencies are loaded,
+ * so the first libraries load while the sources are still being searched.
+ * Missing dependencies and cycles can only be known once every source is searched, so they're
+ * reported after the libraries that could be loaded are loaded.
+ * Library information whose manager isn't registered yet is kept, and resolved afterwards
+ * once a loaded library registers the manager, without being read again.
+ */
+public class LibraryPipeline {
+    
+    private final List<ILibrarySource> sources;
+    private final Executor executor;
+    private final ClassLoader[] loaders;
+    
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+    private final Map<String, List<Node>> missing = new HashMap<>();
+    private final List<URL> infos = new ArrayList<>();
+    private final WaitingDescriptors waiting = new WaitingDescriptors();
+    
+    private final CompletableFuture<Void> loaded = new CompletableFuture<>();
+    
+    private LibraryException failure;
+    private boolean discovering = true;
+    private int parsing;
+    private int running;
+    private long start;
+    
+    /**
+     * Constructs a LibraryPipeline for the given sources.
+     *
+     * @param sources the sources to search the library information in, in order.
+     * @param executor the executor to parse and load the libraries on.
+     */
+    public LibraryPipeline(List<ILibrarySource> sources, Executor executor) {
+        this.sources = sources;
+        this.executor = executor;
+        this.loaders = new ClassLoader[sources.size()];
+    }
+    
+    /**
+     * Discovers, resolves and loads the libraries of the sources and waits for them to finish.
+     * If a library fails to load, libraries that haven't started yet are skipped
+     * and the first failure is thrown once the running ones finish.
+     *
+     * @param parent the class loader of the first source.
+     * @throws LibraryException if a library fails to resolve or load.
+     */
+    public void run(ClassLoader parent) throws LibraryException {
+        try {
+            start(parent).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof LibraryException cause) throw cause;
+            throw new LibraryException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            
+            LibraryException failure = new LibraryException(e);
+            fail(failure);
+            throw failure;
+        }
+    }
+    
+    /**
+     * Searches the sources one after the other on the calling thread, handing every library
+     * information they find to the executor, and returns without waiting for the libraries to load.
+     * The class loader of each source is known once it's searched, or before if the source
+     * {@link ILibrarySource#isClassLoaderKnown() knows it}, and its libraries only load from then on.
+     *
+     * @param parent the class loader of the first source.
+     * @return a future completing once all libraries are loaded, or completing with the
+     *         first failure once the running ones finish.
+     */
+    public CompletableFuture<Void> start(ClassLoader parent) {
+        start = LibraryProfiler.start();
+        
+        try {
+            ClassLoader loader = parent;
+            for (int i = 0; i < sources.size(); i++) {
+                ILibrarySource source = sources.get(i);
+                int index = i;
+                
+                boolean known = source.isClassLoaderKnown();
+                if (known) submit(found(index, loader = source.getClassLoader(loader)));
+                
+                source.find(url -> accept(index, url));
+                
+                if (!known) submit(found(index, loader = source.getClassLoader(loader)));
+            }
+        } catch (IOException | RuntimeException e) {
+            fail(new LibraryException(e));
+        }
+        
+        synchronized (this) {
+            discovering = false;
+        }
+        
+        check();
+        return loaded.thenCompose(v -> LibraryResolver.loadAsync(getClassLoader(), waiting, executor));
+    }
+    
+    /**
+     * Gets the class loader of the last source, to load later libraries with.
+     *
+     * @return the class loader of the last source, or null if the sources haven't all been searched.
+     */
+    public synchronized ClassLoader getClassLoader() {
+        return loaders.length > 0 ? loaders[loaders.length - 1] : null;
+    }
+    
+    /**
+     * Gets the information URLs found by the sources, including the waiting ones.
+     *
+     * @return the information URLs, in the order they were found.
+     */
+    public synchronized List<URL> getInfos() {
+        return new ArrayList<>(infos);
+    }
+    
+    private void accept(int source, URL url) {
+        synchronized (this) {
+            if (failure != null) return;
+            
+            infos.add(url);
+            parsing++;
+        }
+        
+        try {
+            executor.execute(() -> parse(source, url));
+        } catch (RejectedExecutionException e) {
+            fail(new LibraryException(e));
+            parsed();
+        }
+    }
+    
+    private void parse(int source, URL url) {
+        try {
+            if (isFailed()) return;
+            
+            long read = LibraryProfiler.start();
+            
+            LibraryDescriptor d = LibraryDescriptor.of(url, LibraryInfoBuffer.read(url));
+            ILibraryManager manager = d.manager != null ? LibraryResolver.MANAGERS.get(d.manager) : null;
+            
+            if (manager == null) {
+                synchronized (this) {
+                    waiting.add(d); // doesn't have a manager, wait for it
+                }
+                return;
+            }
+            
+            ResolvedLibrary r = new ResolvedLibrary(manager, manager.create(d.info()), url);
+            
+            LibraryProfiler.record(LibraryPhase.READ, r.tag, read);
+            
+            submit(add(new Node(r, source)));
+        } catch (LibraryException e) {
+            fail(e);
+        } catch (Exception e) {
+            fail(new LibraryException(e));
+        } finally {
+            parsed();
+        }
+    }
+    
+    private void parsed() {
+        synchronized (this) {
+            parsing--;
+        }
+        
+        check();
+    }
+    
+    private synchronized List<Node> add(Node node) throws LibraryException {
+        ResolvedLibrary r = node.library;
+        
+        if (LibraryResolver.LOADED.containsKey(r.tag)) throw new LibraryException("Library already loaded: " + r.tag);
+        if (LibraryResolver.PENDING.containsKey(r.tag)) throw new LibraryException("Library already resolved: " + r.tag);
+        if (nodes.containsKey(r.tag)) throw new LibraryException("Overlapping library tag: " + r.tag);
+        
+        nodes.put(r.tag, node);
+        
+        for (String tag : r.library.getDependencies()) {
+            // a node is in LOADED before it's finished, so only its own flag says if it was counted as loaded
+            Node dependency = nodes.get(tag);
+            ResolvedLibrary loaded = dependency == null ? LibraryResolver.LOADED.get(tag) : null;
+            
+            if (dependency != null) {
+                r.link(dependency.library);
+                if (!dependency.loaded) node.pending++;
+            } else if (loaded != null) {
+                r.link(loaded);
+            } else {
+                missing.computeIfAbsent(tag, k -> new ArrayList<>()).add(node);
+                node.pending++;
+            }
+        }
+        
+        List<Node> dependents = missing.remove(r.tag);
+        if (dependents != null) {
+            for (Node dependent : dependents) {
+                dependent.library.link(r);
+            }
+        }
+        
+        return ready(node) ? List.of(node) : List.of();
+    }
+    
+    private synchronized List<Node> found(int source, ClassLoader loader) {
+        loaders[source] = loader;
+        
+        List<Node> ready = new ArrayList<>();
+        for (Node node : nodes.values()) {
+            if (node.source == source && ready(node)) ready.add(node);
+        }
+        return ready;
+    }
+    
+    /**
+     * Marks the node as started if it can load: all of its dependencies are loaded
+     * and the class loader of its source is known. Called while holding the lock.
+     */
+    private boolean ready(Node node) {
+        if (failure != null || node.started || node.pending > 0 || loaders[node.source] == null) return false;
+        
+        node.started = true;
+        running++;
+        return true;
+    }
+    
+    private void submit(List<Node> ready) {
+        for (Node node : ready) {
+            try {
+                executor.execute(() -> load(node));
+            } catch (RejectedExecutionException e) {
+                finished(node, new LibraryException(e));
+            }
+        }
+    }
+    
+    private void load(Node node) {
+        if (isFailed()) {
+            finished(node, null);
+            return;
+        }
+        
+        ClassLoader loader;
+        synchronized (this) {
+            loader = loaders[node.source];
+        }
+        
+        CompletableFuture<Void> future;
+        try {
+            future = LibraryResolver.loadAsync(loader, node.library);
+        } catch (Throwable e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        
+        future.whenComplete((v, e) -> {
+            if (e instanceof CompletionException) e = e.getCause();
+            
+            finished(node, e == null ? null : e instanceof LibraryException cause ? cause : new LibraryException(e));
+        });
+    }
+    
+    private void finished(Node node, LibraryException e) {
+        List<Node> ready = new ArrayList<>();
+        synchronized (this) {
+            running--;
+            
+            if (e != null) {
+                if (failure == null) failure = e;
+            } else if (failure == null) {
+                node.loaded = true;
+                
+                for (ResolvedLibrary dependent : node.library.dependents) {
+                    Node next = nodes.get(dependent.tag);
+                    if (next == null || next.library != dependent) continue;
+                    
+                    next.pending--;
+                    if (ready(next)) ready.add(next);
+                }
+            }
+        }
+        
+        submit(ready);
+        check();
+    }
+    
+    private synchronized boolean isFailed() {
+        return failure != null;
+    }
+    
+    private void fail(LibraryException e) {
+        synchronized (this) {
+            if (failure == null) failure = e;
+        }
+        
+        check();
+    }
+    
+    private void check() {
+        LibraryException failure;
+        synchronized (this) {
+            if (discovering || parsing > 0 || running > 0) return;
+            if (loaded.isDone()) return;
+            
+            if (this.failure == null) this.failure = unresolved();
+            failure = this.failure;
+        }
+        
+        if (failure != null) {
+            loaded.completeExceptionally(failure);
+        } else {
+            LibraryProfiler.record(LibraryPhase.RESOLVE, null, start);
+            loaded.complete(null);
+        }
+    }
+    
+    /**
+     * Explains why libraries are left once everything that could be loaded is loaded.
+     *
+     * @return the exception reporting the missing libraries or the cycles, or null if all libraries are loaded.
+     */
+    private LibraryException unresolved() {
+        if (!missing.isEmpty()) return new LibraryException("Missing library: " + missing.keySet().iterator().next());
+        
+        List<ResolvedLibrary> left = new ArrayList<>();
+        for (Node node : nodes.values()) {
+            if (!node.loaded) left.add(node.library);
+        }
+        if (left.isEmpty()) return null;
+        
+        return new LibraryException("Library cycle detected: " + new LibraryGraph(left).cycles().stream()
+                .map(Object::toString)
+                .collect(Collectors.joining(", ")));
+    }
+    
+    private static class Node {
+        
+        private final ResolvedLibrary library;
+        private final int source;
+        
+        /**
+         * The number of dependencies that aren't loaded yet, including the ones that aren't found yet.
+         */
+        private int pending;
+        private boolean started;
+        private boolean loaded;
+        
+        private Node(ResolvedLibrary library, int source) {
+            this.library = library;
+            this.source = source;
+        }
+    }
+}
@@ -1,16 +1,31 @@
 package fluff.core.lib;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.net.URL;
-import java.util.HashMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import fluff.core.lib.profile.LibraryPhase;
+import fluff.core.lib.profile.LibraryProfiler;
 
 /**
  * Utility class for resolving and loading libraries based on their information URLs.
@@ -19,13 +34,69 @@ public class LibraryResolver {
     
     /**
      * Map of library managers indexed by manager ID.
+     * Safe to read and update from any thread.
      */
-    public static final Map<String, ILibraryManager> MANAGERS = new HashMap<>();
+    public static final Map<String, ILibraryManager> MANAGERS = new ConcurrentHashMap<>();
     
     /**
      * Map of loaded resolved libraries indexed by their tags.
+     * A library is only added once it finished loading, and reads never block.
+     */
+    public static final Map<String, ResolvedLibrary> LOADED = new ConcurrentHashMap<>();
+    
+    /**
+     * Map of resolved libraries waiting to be loaded on demand, indexed by their tags.
+     */
+    public static final Map<String, ResolvedLibrary> PENDING = new ConcurrentHashMap<>();
+    
+    /**
+     * Set of the information URLs of the loaded and pending libraries, in their external form.
+     */
+    private static final Set<String> KNOWN = ConcurrentHashMap.newKeySet();
+    
+    /**
+     * Library information of the lazily resolved libraries waiting for their library manager to be registered.
+     */
+    private static final WaitingDescriptors WAITING = new WaitingDescriptors();
+    
+    /**
+     * The library being loaded by its manager on the current thread, which runs its main methods.
      */
-    public static final Map<String, ResolvedLibrary> LOADED = new HashMap<>();
+    private static final ThreadLocal<ResolvedLibrary> LOADING = new ThreadLocal<>();
+    
+    private static volatile boolean ISOLATED = false;
+    private static volatile boolean PREFETCH = true;
+    
+    /**
+     * Daemon threads preparing the resolved libraries while the previous ones load, see {@link #prefetch(ClassLoader, List)}.
+     */
+    private static final ExecutorService PREFETCHER = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "fluff-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    /**
+     * Sets whether each library loaded from now on gets its own {@link LibraryClassLoader},
+     * which only sees the classes of the library, of its dependencies and of the parent class loader.
+     * Isolated libraries can be garbage collected after they're unloaded.
+     *
+     * @param isolated true to load libraries in isolation, false to load them with the given ClassLoader.
+     */
+    public static void setIsolated(boolean isolated) {
+        ISOLATED = isolated;
+    }
+    
+    /**
+     * Sets whether resolved libraries are prepared in the background through
+     * {@link ILibraryManager#prefetch(ClassLoader, ILibrary)} while the libraries before them load.
+     * Libraries loaded in isolation aren't prepared, since their class loader is only created when they're loaded.
+     *
+     * @param prefetch true to prepare libraries in the background, false to only load them.
+     */
+    public static void setPrefetch(boolean prefetch) {
+        PREFETCH = prefetch;
+    }
     
     /**
      * Resolves and loads libraries using the specified ClassLoader and list of information URLs.
@@ -35,21 +106,512 @@ public class LibraryResolver {
      * @throws LibraryException if there is an error resolving or loading libraries.
      */
     public static void resolveAndLoad(ClassLoader loader, List<URL> infos) throws LibraryException {
-        List<URL> list = new LinkedList<>(infos);
+        resolveAndLoad(loader, infos, null);
+    }
+    
+    /**
+     * Resolves and loads libraries using the specified ClassLoader and list of information URLs.
+     * If an executor is specified, each library is loaded on it as soon as all of its dependencies
+     * finished loading, otherwise the libraries are loaded one at a time in their sorted order.
+     *
+     * @param loader the ClassLoader to use for loading libraries.
+     * @param infos the list of URLs containing library information.
+     * @param executor the executor to load libraries on, or null to load them sequentially.
+     * @throws LibraryException if there is an error resolving or loading libraries.
+     */
+    public static void resolveAndLoad(ClassLoader loader, List<URL> infos, Executor executor) throws LibraryException {
+        WaitingDescriptors waiting = new WaitingDescriptors();
+        List<LibraryDescriptor> ready = LibraryDescriptor.read(infos);
+        
+        while (!ready.isEmpty()) {
+            List<ResolvedLibrary> resolved = resolve(ready, waiting, false);
+            
+            prefetch(loader, resolved);
+            load(loader, resolved, executor);
+            
+            ready = waiting.wake();
+        }
+        
+        if (!waiting.isEmpty()) throw new LibraryException("Couldn't resolve libraries!");
+    }
+    
+    /**
+     * Resolves and loads new libraries at runtime, next to the already loaded ones.
+     * Information URLs of libraries that are already loaded or pending are skipped,
+     * and the new libraries are only checked against the loaded ones, so the cost
+     * depends on the number of new libraries.
+     * Pending libraries the new ones depend on are required before the new ones are loaded.
+     *
+     * @param loader the ClassLoader to use for loading the new libraries.
+     * @param infos the list of URLs containing library information, old and new.
+     * @param executor the executor to load libraries on, or null to load them sequentially.
+     * @return the newly loaded libraries, sorted by their dependencies.
+     * @throws LibraryException if there is an error resolving or loading the new libraries.
+     */
+    public static synchronized List<ResolvedLibrary> plug(ClassLoader loader, List<URL> infos, Executor executor) throws LibraryException {
+        List<URL> list = new ArrayList<>();
+        for (URL url : infos) {
+            if (!KNOWN.contains(url.toExternalForm())) list.add(url);
+        }
+        
+        WaitingDescriptors waiting = new WaitingDescriptors();
+        List<LibraryDescriptor> ready = LibraryDescriptor.read(list);
         
-        while (!list.isEmpty()) {
-            List<ResolvedLibrary> resolved = resolve(list);
+        List<ResolvedLibrary> loaded = new ArrayList<>();
+        while (!ready.isEmpty()) {
+            List<ResolvedLibrary> resolved = resolve(ready, waiting, false);
             
+            // the batch is loaded on its own, so lazily resolved dependencies have to be loaded first
             for (ResolvedLibrary r : resolved) {
-                r.manager.load(loader, r.library);
+                for (ResolvedLibrary dependency : r.dependencies) {
+                    if (PENDING.get(dependency.tag) == dependency) require(loader, dependency.tag);
+                }
+            }
+            
+            prefetch(loader, resolved);
+            load(loader, resolved, executor);
+            loaded.addAll(resolved);
+            
+            ready = waiting.wake();
+        }
+        
+        if (!waiting.isEmpty()) throw new LibraryException("Couldn't resolve libraries!");
+        return loaded;
+    }
+    
+    /**
+     * Loads the resolved libraries using the specified ClassLoader.
+     * If an executor is specified, each library is loaded on it as soon as all of its dependencies
+     * finished loading. When a library fails, the libraries that haven't started loading yet are
+     * skipped and the first failure is thrown.
+     *
+     * @param loader the ClassLoader to use for loading libraries.
+     * @param resolved the resolved libraries, sorted by their dependencies.
+     * @param executor the executor to load libraries on, or null to load them sequentially.
+     * @throws LibraryException if there is an error loading libraries.
+     */
+    public static void load(ClassLoader loader, List<ResolvedLibrary> resolved, Executor executor) throws LibraryException {
+        if (executor != null) {
+            new ParallelLoader(loader, resolved, executor).run();
+            return;
+        }
+        
+        for (ResolvedLibrary r : resolved) {
+            load(loader, r);
+        }
+    }
+    
+    /**
+     * Resolves and loads libraries without blocking the calling thread.
+     * Each library is loaded on the executor as soon as all of its dependencies finished loading,
+     * including the futures returned by their managers, so asynchronous libraries of independent
+     * branches overlap. Libraries whose manager is registered by another library are resolved once
+     * the previous batch is loaded.
+     *
+     * @param loader the ClassLoader to use for loading libraries.
+     * @param infos the list of URLs containing library information.
+     * @param executor the executor to resolve and load libraries on.
+     * @return a future completing once all libraries are loaded, or with the first failure.
+     */
+    public static CompletableFuture<Void> resolveAndLoadAsync(ClassLoader loader, List<URL> infos, Executor executor) {
+        List<URL> list = new ArrayList<>(infos);
+        
+        return CompletableFuture.completedFuture(list)
+                .thenComposeAsync(urls -> {
+                    List<LibraryDescriptor> ready;
+                    try {
+                        ready = LibraryDescriptor.read(urls);
+                    } catch (LibraryException e) {
+                        return CompletableFuture.failedFuture(e);
+                    }
+                    
+                    return loadRemaining(loader, ready, new WaitingDescriptors(), executor);
+                }, executor);
+    }
+    
+    /**
+     * Resolves and loads the library information waiting for library managers registered since,
+     * batch after batch, without blocking the calling thread.
+     *
+     * @param loader the ClassLoader to use for loading libraries.
+     * @param waiting the library information waiting for their library manager.
+     * @param executor the executor to load libraries on.
+     * @return a future completing once all libraries are loaded, or with the first failure.
+     */
+    static CompletableFuture<Void> loadAsync(ClassLoader loader, WaitingDescriptors waiting, Executor executor) {
+        return loadRemaining(loader, waiting.wake(), waiting, executor);
+    }
+    
+    private static CompletableFuture<Void> loadRemaining(ClassLoader loader, List<LibraryDescriptor> ready, WaitingDescriptors waiting, Executor executor) {
+        if (ready.isEmpty()) {
+            if (waiting.isEmpty()) return CompletableFuture.completedFuture(null);
+            
+            return CompletableFuture.failedFuture(new LibraryException("Couldn't resolve libraries!"));
+        }
+        
+        List<ResolvedLibrary> resolved;
+        try {
+            resolved = resolve(ready, waiting, false);
+        } catch (LibraryException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        
+        prefetch(loader, resolved);
+        return loadAsync(loader, resolved, executor)
+                .thenCompose(v -> loadRemaining(loader, waiting.wake(), waiting, executor));
+    }
+    
+    /**
+     * Prepares the resolved libraries on the prefetch threads, in their sorted order, so the
+     * first ones to load are prepared first. Libraries are loaded without waiting for it,
+     * and one that is prepared and loaded at the same time only waits for the class loading locks.
+     *
+     * @param loader the ClassLoader the libraries will be loaded with.
+     * @param resolved the resolved libraries, sorted by their dependencies.
+     */
+    private static void prefetch(ClassLoader loader, List<ResolvedLibrary> resolved) {
+        if (!PREFETCH || ISOLATED || resolved.isEmpty()) return;
+        
+        AtomicInteger next = new AtomicInteger();
+        Runnable worker = () -> {
+            int i;
+            while ((i = next.getAndIncrement()) < resolved.size()) {
+                ResolvedLibrary r = resolved.get(i);
+                if (r.getClassLoader() != null) continue; // already loading
+                
+                long start = LibraryProfiler.start();
                 
-                LOADED.put(r.tag, r);
+                try {
+                    r.manager.prefetch(loader, r.library);
+                } catch (RuntimeException | LinkageError e) {
+                    continue; // reported when the library is loaded
+                }
+                
+                LibraryProfiler.record(LibraryPhase.PREFETCH, r.tag, start);
             }
+        };
+        
+        int workers = Math.min(resolved.size(), Runtime.getRuntime().availableProcessors());
+        for (int i = 0; i < workers; i++) {
+            PREFETCHER.execute(worker);
+        }
+    }
+    
+    /**
+     * Loads the resolved libraries on the executor without blocking the calling thread.
+     * Each library is loaded as soon as all of its dependencies finished loading, including the
+     * futures returned by their managers. When a library fails, the libraries that haven't started
+     * loading yet are skipped.
+     *
+     * @param loader the ClassLoader to use for loading libraries.
+     * @param resolved the resolved libraries, sorted by their dependencies.
+     * @param executor the executor to load libraries on.
+     * @return a future completing once all libraries are loaded, or with the first failure
+     *         once the running ones finish.
+     */
+    public static CompletableFuture<Void> loadAsync(ClassLoader loader, List<ResolvedLibrary> resolved, Executor executor) {
+        return new ParallelLoader(loader, resolved, Objects.requireNonNull(executor)).start();
+    }
+    
+    /**
+     * Loads a single resolved library through its manager, recording the time it took,
+     * and adds it to {@link #LOADED}, waiting for the future returned by the manager.
+     *
+     * @param loader the ClassLoader to use for loading the library.
+     * @param r the resolved library to load.
+     * @throws LibraryException if there is an error loading the library.
+     */
+    static void load(ClassLoader loader, ResolvedLibrary r) throws LibraryException {
+        try {
+            loadAsync(loader, r).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof LibraryException cause) throw cause;
+            throw new LibraryException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LibraryException(e);
         }
     }
     
+    /**
+     * Starts loading a single resolved library through its manager. Once the future returned
+     * by the manager completes, the time it took is recorded and the library is added to {@link #LOADED}.
+     *
+     * @param loader the ClassLoader to use for loading the library.
+     * @param r the resolved library to load.
+     * @return a future completing once the library is loaded.
+     * @throws LibraryException if there is an error starting to load the library.
+     */
+    static CompletableFuture<Void> loadAsync(ClassLoader loader, ResolvedLibrary r) throws LibraryException {
+        long start = LibraryProfiler.start();
+        
+        ClassLoader libraryLoader = ISOLATED ? LibraryClassLoader.create(r, loader) : loader;
+        r.setClassLoader(libraryLoader);
+        
+        CompletableFuture<?> future = null;
+        ResolvedLibrary outer = LOADING.get();
+        LOADING.set(r);
+        try {
+            future = r.manager.loadAsync(libraryLoader, r.library);
+        } finally {
+            LOADING.set(outer);
+            if (future == null) failed(r, libraryLoader);
+        }
+        
+        return future.handle((v, e) -> {
+            if (e != null) {
+                failed(r, libraryLoader);
+                
+                throw e instanceof CompletionException ce ? ce : new CompletionException(e);
+            }
+            
+            LibraryProfiler.record(LibraryPhase.LOAD, r.tag, start);
+            
+            if (r.source != null) KNOWN.add(r.source.toExternalForm());
+            LOADED.put(r.tag, r);
+            return null;
+        });
+    }
+    
+    /**
+     * Checks if the current thread is loading a library, running one of its main methods.
+     * Code called from a main method can't wait for the loading of all libraries to finish.
+     *
+     * @return true if a library is being loaded on the current thread, false otherwise.
+     */
+    public static boolean isLoading() {
+        return LOADING.get() != null;
+    }
+    
+    private static void failed(ResolvedLibrary r, ClassLoader loader) {
+        r.setClassLoader(null);
+        LibraryClassLoader.close(loader);
+    }
+    
+    /**
+     * Gets the dependency graph of the loaded libraries.
+     *
+     * @return a snapshot of the graph of the loaded libraries.
+     */
+    public static LibraryGraph graph() {
+        return new LibraryGraph(new ArrayList<>(LOADED.values()));
+    }
+    
+    /**
+     * Resolves libraries using the list of information URLs without loading them.
+     * The resolved libraries are added to {@link #PENDING} and loaded, together with their
+     * dependencies, the first time they are required through {@link #require(ClassLoader, String)}.
+     * Libraries whose manager isn't registered yet are resolved after a required library registers it.
+     *
+     * @param infos the list of URLs containing library information.
+     * @throws LibraryException if there is an error resolving libraries.
+     */
+    public static synchronized void resolveLazy(List<URL> infos) throws LibraryException {
+        for (ResolvedLibrary r : resolve(LibraryDescriptor.read(infos), WAITING, false)) {
+            pend(r);
+        }
+    }
+    
+    /**
+     * Gets a library by its tag, loading it and its dependencies first if it's pending.
+     *
+     * @param loader the ClassLoader to use for loading libraries.
+     * @param tag the tag of the library.
+     * @return the loaded library, or null if no library with the tag was resolved.
+     * @throws LibraryException if there is an error loading the library or its dependencies.
+     */
+    public static synchronized ResolvedLibrary require(ClassLoader loader, String tag) throws LibraryException {
+        if (tag == null) return null;
+        
+        ResolvedLibrary r = LOADED.get(tag);
+        if (r != null) return r;
+        
+        r = PENDING.get(tag);
+        if (r == null) return null;
+        
+        List<ResolvedLibrary> sorted = new LinkedList<>();
+        Set<ResolvedLibrary> visited = new HashSet<>();
+        Deque<Iterator<ResolvedLibrary>> stack = new ArrayDeque<>();
+        Deque<ResolvedLibrary> path = new ArrayDeque<>();
+        
+        visited.add(r);
+        path.push(r);
+        stack.push(r.dependencies.iterator());
+        while (!stack.isEmpty()) {
+            if (stack.peek().hasNext()) {
+                ResolvedLibrary dependency = stack.peek().next();
+                
+                if (PENDING.containsKey(dependency.tag) && visited.add(dependency)) {
+                    path.push(dependency);
+                    stack.push(dependency.dependencies.iterator());
+                }
+            } else {
+                stack.pop();
+                sorted.add(path.pop());
+            }
+        }
+        
+        try {
+            load(loader, sorted, null);
+        } finally {
+            for (ResolvedLibrary loaded : sorted) {
+                if (LOADED.containsKey(loaded.tag)) PENDING.remove(loaded.tag);
+            }
+        }
+        
+        List<LibraryDescriptor> ready = WAITING.wake();
+        if (!ready.isEmpty()) {
+            for (ResolvedLibrary resolved : resolve(ready, WAITING, true)) {
+                pend(resolved);
+            }
+        }
+        
+        return r;
+    }
+    
+    /**
+     * Unloads a loaded library, together with every library that depends on it.
+     * The dependents are unloaded first, through {@link ILibraryManager#unload(ClassLoader, ILibrary)},
+     * and pending dependents are dropped. All references to the unloaded libraries are removed,
+     * so their classes can be garbage collected if they were loaded in isolation and nothing else
+     * references them. Their information URLs can be plugged again afterwards.
+     *
+     * @param tag the tag of the library to unload.
+     * @return the unloaded libraries, dependents first, or an empty list if the library isn't loaded.
+     * @throws LibraryException if a library fails to unload, after all of them are unloaded.
+     */
+    public static synchronized List<ResolvedLibrary> unload(String tag) throws LibraryException {
+        ResolvedLibrary r = tag != null ? LOADED.get(tag) : null;
+        if (r == null) return List.of();
+        
+        List<ResolvedLibrary> sorted = new ArrayList<>();
+        Set<ResolvedLibrary> visited = new HashSet<>();
+        Deque<Iterator<ResolvedLibrary>> stack = new ArrayDeque<>();
+        Deque<ResolvedLibrary> path = new ArrayDeque<>();
+        
+        visited.add(r);
+        path.push(r);
+        stack.push(new ArrayList<>(r.dependents).iterator());
+        while (!stack.isEmpty()) {
+            if (stack.peek().hasNext()) {
+                ResolvedLibrary dependent = stack.peek().next();
+                
+                if (visited.add(dependent)) {
+                    path.push(dependent);
+                    stack.push(new ArrayList<>(dependent.dependents).iterator());
+                }
+            } else {
+                stack.pop();
+                sorted.add(path.pop());
+            }
+        }
+        
+        LibraryException failure = null;
+        for (ResolvedLibrary unloaded : sorted) {
+            try {
+                unload(unloaded);
+            } catch (LibraryException e) {
+                if (failure == null) failure = e;
+            } catch (RuntimeException e) {
+                if (failure == null) failure = new LibraryException(e);
+            } finally {
+                release(unloaded);
+            }
+        }
+        if (failure != null) throw failure;
+        
+        return sorted;
+    }
+    
+    /**
+     * Unloads every loaded library and drops the pending ones, so the libraries can be resolved again.
+     * Libraries are unloaded in the reverse order of their dependencies, each one as soon as all of
+     * its dependents are unloaded, so independent libraries are unloaded concurrently on the executor.
+     * A library that doesn't unload within the timeout is given up on and its dependencies are
+     * unloaded anyway, so a hung shutdown hook can't block the others.
+     *
+     * @param executor the executor to unload libraries on, or null to unload them on daemon threads.
+     * @param timeout the time in milliseconds each library is given to unload.
+     * @return the unloaded libraries, dependents first.
+     * @throws LibraryException if a library fails or times out, after all of them are unloaded.
+     */
+    public static synchronized List<ResolvedLibrary> shutdown(Executor executor, long timeout) throws LibraryException {
+        List<ResolvedLibrary> sorted = graph().sort();
+        Collections.reverse(sorted);
+        
+        ExecutorService daemons = null;
+        if (executor == null) {
+            daemons = Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "fluff-shutdown");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor = daemons;
+        }
+        
+        try {
+            new ParallelUnloader(sorted, executor, timeout).run();
+        } finally {
+            if (daemons != null) daemons.shutdown(); // hung libraries are left running
+            
+            for (ResolvedLibrary r : sorted) {
+                release(r);
+            }
+            for (ResolvedLibrary r : new ArrayList<>(PENDING.values())) {
+                PENDING.remove(r.tag, r);
+                release(r);
+            }
+            WAITING.clear();
+        }
+        
+        return sorted;
+    }
+    
+    /**
+     * Unloads a single library through its manager, recording the time it took,
+     * and removes it from {@link #LOADED}, or from {@link #PENDING} if it wasn't loaded.
+     *
+     * @param r the library to unload.
+     * @throws LibraryException if there is an error unloading the library.
+     */
+    static void unload(ResolvedLibrary r) throws LibraryException {
+        long start = LibraryProfiler.start();
+        
+        if (LOADED.remove(r.tag, r)) {
+            r.manager.unload(r.getClassLoader(), r.library);
+            
+            LibraryProfiler.record(LibraryPhase.UNLOAD, r.tag, start);
+        } else {
+            PENDING.remove(r.tag, r);
+        }
+    }
+    
+    /**
+     * Removes the remaining references to an unloaded library and closes its class loader.
+     *
+     * @param r the unloaded library.
+     */
+    private static void release(ResolvedLibrary r) {
+        ClassLoader loader = r.getClassLoader();
+        
+        LOADED.remove(r.tag, r);
+        if (r.source != null) KNOWN.remove(r.source.toExternalForm());
+        for (ResolvedLibrary dependency : r.dependencies) {
+            dependency.dependents.remove(r);
+        }
+        
+        r.setClassLoader(null);
+        LibraryClassLoader.close(loader);
+    }
+    
+    private static void pend(ResolvedLibrary r) {
+        if (r.source != null) KNOWN.add(r.source.toExternalForm());
+        PENDING.put(r.tag, r);
+    }
+    
     /**
      * Resolves libraries from the list of information URLs.
+     * The information URLs whose library manager isn't registered are left in the list, the others are removed.
      *
      * @param infos the list of URLs containing library information.
      * @return a list of resolved libraries.
@@ -58,28 +620,49 @@ public class LibraryResolver {
     public static List<ResolvedLibrary> resolve(List<URL> infos) throws LibraryException {
         if (infos.isEmpty()) return List.of();
         
-        Queue<URL> unresolved = new LinkedList<>(infos);
-        Map<String, ResolvedLibrary> resolved = new HashMap<>();
-        Map<String, Integer> counter = new HashMap<>();
+        WaitingDescriptors waiting = new WaitingDescriptors();
+        List<ResolvedLibrary> resolved = resolve(LibraryDescriptor.read(infos), waiting, false);
         
         infos.clear();
-        while (!unresolved.isEmpty()) {
-            URL url = unresolved.poll();
+        infos.addAll(waiting.urls());
+        return resolved;
+    }
+    
+    /**
+     * Resolves libraries from library information that was already read.
+     * Library information whose manager isn't registered is added to the waiting index.
+     *
+     * @param descriptors the library information to resolve.
+     * @param waiting the index to add the library information without a registered manager to.
+     * @param partial true to return an empty list if nothing can be resolved, false to throw.
+     * @return the resolved libraries, sorted by their dependencies.
+     * @throws LibraryException if there is an error resolving libraries.
+     */
+    static List<ResolvedLibrary> resolve(List<LibraryDescriptor> descriptors, WaitingDescriptors waiting, boolean partial) throws LibraryException {
+        if (descriptors.isEmpty()) return List.of();
+        
+        long start = LibraryProfiler.start();
+        
+        Map<String, ResolvedLibrary> resolved = new LinkedHashMap<>();
+        
+        for (LibraryDescriptor d : descriptors) {
+            long read = LibraryProfiler.start();
             
-            try (BufferedReader br = new BufferedReader(new InputStreamReader(url.openStream()))) {
-                String id = br.readLine();
-                ILibraryManager manager = MANAGERS.get(id);
+            try {
+                ILibraryManager manager = d.manager != null ? MANAGERS.get(d.manager) : null;
                 
                 if (manager == null) {
-                    br.close();
-                    infos.add(url); // doesn't have a manager, wait for it
+                    waiting.add(d); // doesn't have a manager, wait for it
                     continue;
                 }
                 
-                ILibrary library = manager.create(br);
-                ResolvedLibrary r = new ResolvedLibrary(manager, library);
+                ILibrary library = manager.create(d.info());
+                ResolvedLibrary r = new ResolvedLibrary(manager, library, d.url);
+                
+                LibraryProfiler.record(LibraryPhase.READ, r.tag, read);
                 
                 if (LOADED.containsKey(r.tag)) throw new LibraryException("Library already loaded: " + r.tag);
+                if (PENDING.containsKey(r.tag)) throw new LibraryException("Library already resolved: " + r.tag);
                 if (resolved.containsKey(r.tag)) throw new LibraryException("Overlapping library tag: " + r.tag);
                 
                 resolved.put(r.tag, r);
@@ -88,62 +671,52 @@ public class LibraryResolver {
             }
         }
         
-        if (resolved.isEmpty()) throw new LibraryException("Couldn't resolve libraries!");
-        
-        for (Map.Entry<String, ResolvedLibrary> e : resolved.entrySet()) {
-            ResolvedLibrary r = e.getValue();
+        if (resolved.isEmpty()) {
+            if (partial) return List.of();
             
+            throw new LibraryException("Couldn't resolve libraries!");
+        }
+        
+        // check every dependency before linking, so a failed batch isn't left among the dependents of loaded libraries
+        for (ResolvedLibrary r : resolved.values()) {
             for (String tag : r.library.getDependencies()) {
-                if (LOADED.containsKey(tag)) {
-                    r.link(LOADED.get(tag));
-                } else if (resolved.containsKey(tag)) {
-                    r.link(resolved.get(tag));
-                    
-                    counter.put(r.tag, counter.getOrDefault(r.tag, 0) + 1);
-                } else {
+                if (!LOADED.containsKey(tag) && !PENDING.containsKey(tag) && !resolved.containsKey(tag)) {
                     throw new LibraryException("Missing library: " + tag);
                 }
             }
         }
         
-        Queue<ResolvedLibrary> queue = new LinkedList<>();
-        List<ResolvedLibrary> sorted = new LinkedList<>();
-        
-        for (Map.Entry<String, ResolvedLibrary> e : resolved.entrySet()) {
-            ResolvedLibrary r = e.getValue();
-            int count = counter.getOrDefault(r.tag, 0);
-            
-            if (count == 0) queue.add(r);
-        }
-        
-        while (!queue.isEmpty()) {
-            ResolvedLibrary current = queue.poll();
-            sorted.add(current);
-            
-            for (ResolvedLibrary r : current.dependents) {
-                int count = counter.get(r.tag) - 1;
-                
-                if (count == 0) {
-                    queue.add(r);
+        for (ResolvedLibrary r : resolved.values()) {
+            for (String tag : r.library.getDependencies()) {
+                if (LOADED.containsKey(tag)) {
+                    r.link(LOADED.get(tag));
+                } else if (PENDING.containsKey(tag)) {
+                    r.link(PENDING.get(tag));
                 } else {
-                    counter.put(r.tag, count);
+                    r.link(resolved.get(tag));
                 }
             }
         }
         
+        LibraryGraph graph = new LibraryGraph(new ArrayList<>(resolved.values()));
+        List<ResolvedLibrary> sorted = graph.sort();
+        
         if (sorted.size() != resolved.size()) {
-            Set<String> visited = new HashSet<>();
-            Set<String> stack = new HashSet<>();
+            List<List<ResolvedLibrary>> cycles = graph.cycles();
             
-            for (Map.Entry<String, ResolvedLibrary> e : resolved.entrySet()) {
-                ResolvedLibrary r = e.getValue();
-                
-                if (detectCycle(r, visited, stack)) {
-                    throw new LibraryException("Library cycle detected: " + stack);
+            for (ResolvedLibrary r : resolved.values()) {
+                for (ResolvedLibrary dependency : r.dependencies) {
+                    if (resolved.get(dependency.tag) != dependency) dependency.dependents.remove(r);
                 }
             }
+            
+            throw new LibraryException("Library cycle detected: " + cycles.stream()
+                    .map(Object::toString)
+                    .collect(Collectors.joining(", ")));
         }
         
+        LibraryProfiler.record(LibraryPhase.RESOLVE, null, start);
+        
         return sorted;
     }
     
@@ -154,9 +727,12 @@ public class LibraryResolver {
      * @param visited set of visited library tags.
      * @param stack set of libraries in the current stack trace.
      * @return true if a cycle is detected, false otherwise.
+     * @deprecated recursive and stops at the first cycle, use {@link LibraryGraph#cycles()} instead.
      */
+    @Deprecated
     public static boolean detectCycle(ResolvedLibrary r, Set<String> visited, Set<String> stack) {
         if (LOADED.containsKey(r.tag)) return false;
+        if (PENDING.containsKey(r.tag)) return false;
         if (stack.contains(r.tag)) return true;
         if (visited.contains(r.tag)) return false;
         
@@ -0,0 +1,113 @@
+package fluff.core.lib;
+
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The problems found by validating library information with {@link LibraryValidator}, all at once.
+ */
+public class LibraryValidationReport {
+    
+    private final List<Problem> problems;
+    private final int libraries;
+    
+    /**
+     * Constructs a new LibraryValidationReport.
+     *
+     * @param problems the problems found.
+     * @param libraries the number of library information files validated.
+     */
+    public LibraryValidationReport(List<Problem> problems, int libraries) {
+        this.problems = Collections.unmodifiableList(problems);
+        this.libraries = libraries;
+    }
+    
+    /**
+     * Gets all the problems found, errors and warnings.
+     *
+     * @return the problems, in the order of the library information they were found in.
+     */
+    public List<Problem> getProblems() {
+        return problems;
+    }
+    
+    /**
+     * Gets the number of library information files validated.
+     *
+     * @return the number of libraries.
+     */
+    public int getLibraries() {
+        return libraries;
+    }
+    
+    /**
+     * Checks if no errors were found. Warnings don't prevent the libraries from loading.
+     *
+     * @return true if there are no errors, false otherwise.
+     */
+    public boolean isValid() {
+        return problems.stream().noneMatch(p -> p.error);
+    }
+    
+    @Override
+    public String toString() {
+        long errors = problems.stream().filter(p -> p.error).count();
+        
+        StringBuilder sb = new StringBuilder();
+        for (Problem p : problems) {
+            sb.append(p).append('\n');
+        }
+        sb.append(libraries).append(" libraries, ").append(errors).append(" errors, ").append(problems.size() - errors).append(" warnings");
+        return sb.toString();
+    }
+    
+    /**
+     * A problem found in the library information or in the dependency graph.
+     */
+    public static class Problem {
+        
+        /**
+         * True if the problem prevents the libraries from loading, false for a warning.
+         */
+        public final boolean error;
+        
+        /**
+         * The URL of the library information the problem was found in, or null if it concerns several libraries.
+         */
+        public final URL source;
+        
+        /**
+         * The tag of the library, or null if it couldn't be read.
+         */
+        public final String tag;
+        
+        /**
+         * The description of the problem.
+         */
+        public final String message;
+        
+        /**
+         * Constructs a new Problem.
+         *
+         * @param error true for an error, false for a warning.
+         * @param source the URL of the library information, or null.
+         * @param tag the tag of the library, or null.
+         * @param message the description of the problem.
+         */
+        public Problem(boolean error, URL source, String tag, String message) {
+            this.error = error;
+            this.source = source;
+            this.tag = tag;
+            this.message = message;
+        }
+        
+        @Override
+        public String toString() {
+            return (error ? "ERROR " : "WARNING ")
+                    + (tag != null ? tag + ": " : "")
+                    + message
+                    + (source != null ? " (" + source + ")" : "");
+        }
+    }
+}
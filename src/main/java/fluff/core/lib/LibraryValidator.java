@@ -0,0 +1,178 @@
+package fluff.core.lib;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import fluff.core.FluffCore;
+import fluff.core.lib.LibraryValidationReport.Problem;
+import fluff.core.lib.info.LibraryInfoBuffer;
+import fluff.core.lib.info.LibraryInfoSchema;
+import fluff.core.lib.source.LibrarySources;
+
+/**
+ * Validates library information without loading any library, reporting every problem at once
+ * instead of failing on the first one like {@link LibraryResolver#resolve(List)}.
+ * Each library information is checked against the {@link ILibraryManager#getSchema() schema} of its manager,
+ * then the dependency graph is checked for duplicated tags, missing dependencies and all of its cycles.
+ * Library information whose manager isn't registered is skipped, and dependencies that it may provide
+ * are only reported as warnings.
+ */
+public class LibraryValidator {
+    
+    /**
+     * Validates the library information of the specified URLs, reading and parsing them in parallel.
+     * Dependencies on already loaded libraries are satisfied.
+     *
+     * @param infos the list of URLs containing library information.
+     * @return the report of the problems found.
+     * @throws IOException if a library information can't be read.
+     */
+    public static LibraryValidationReport validate(List<URL> infos) throws IOException {
+        List<ByteBuffer> buffers = LibrarySources.read(infos);
+        
+        Checked[] checked = new Checked[infos.size()];
+        IntStream.range(0, checked.length)
+                .parallel()
+                .forEach(i -> checked[i] = check(infos.get(i), buffers.get(i)));
+        
+        List<Problem> problems = new ArrayList<>();
+        Map<String, ResolvedLibrary> resolved = new LinkedHashMap<>();
+        Set<String> skipped = new HashSet<>();
+        boolean unknown = false;
+        for (Checked c : checked) {
+            problems.addAll(c.problems);
+            if (c.skipped) {
+                if (c.tag != null) skipped.add(c.tag);
+                else unknown = true;
+            }
+            if (c.library == null) continue;
+            
+            ResolvedLibrary previous = resolved.putIfAbsent(c.library.tag, c.library);
+            if (previous != null) problems.add(new Problem(true, c.library.source, c.library.tag, "Overlapping library tag, also in " + previous.source));
+        }
+        
+        for (ResolvedLibrary r : resolved.values()) {
+            for (String tag : r.library.getDependencies()) {
+                if (resolved.containsKey(tag)) {
+                    r.link(resolved.get(tag));
+                } else if (skipped.contains(tag)) {
+                    problems.add(new Problem(false, r.source, r.tag, "Depends on skipped library: " + tag));
+                } else if (!LibraryResolver.LOADED.containsKey(tag)) {
+                    if (unknown) problems.add(new Problem(false, r.source, r.tag, "Missing library: " + tag + ", unless a skipped library provides it"));
+                    else problems.add(new Problem(true, r.source, r.tag, "Missing library: " + tag));
+                }
+            }
+        }
+        
+        for (List<ResolvedLibrary> cycle : new LibraryGraph(new ArrayList<>(resolved.values())).cycles()) {
+            problems.add(new Problem(true, null, null, "Library cycle detected: " + cycle));
+        }
+        
+        return new LibraryValidationReport(problems, infos.size());
+    }
+    
+    private static Checked check(URL url, ByteBuffer info) {
+        List<Problem> problems = new ArrayList<>();
+        
+        String id = LibraryInfoBuffer.readHeader(info);
+        if (id == null) {
+            problems.add(new Problem(true, url, null, "Empty library information"));
+            return new Checked(problems, null, false, null);
+        }
+        
+        ILibraryManager manager = LibraryResolver.MANAGERS.get(id);
+        if (manager == null) {
+            String tag = skippedTag(info);
+            
+            problems.add(new Problem(false, url, tag, "No library manager registered with ID " + id + ", skipped"));
+            return new Checked(problems, null, true, tag);
+        }
+        
+        List<String> errors = new ArrayList<>();
+        List<String> warnings = new ArrayList<>();
+        
+        LibraryInfoSchema schema = manager.getSchema();
+        if (schema != null) {
+            try {
+                schema.validate(new LibraryInfoBuffer(info), errors, warnings);
+            } catch (LibraryException e) {
+                errors.add(e.getMessage());
+            }
+        }
+        
+        ResolvedLibrary r = null;
+        if (errors.isEmpty()) {
+            try {
+                r = new ResolvedLibrary(manager, manager.create(info), url);
+            } catch (Exception e) {
+                errors.add(e.getMessage() != null ? e.getMessage() : e.toString());
+            }
+        }
+        
+        String tag = r != null ? r.tag : null;
+        for (String error : errors) {
+            problems.add(new Problem(true, url, tag, error));
+        }
+        for (String warning : warnings) {
+            problems.add(new Problem(false, url, tag, warning));
+        }
+        
+        return new Checked(problems, r, false, tag);
+    }
+    
+    /**
+     * Guesses the tag of a library whose manager isn't registered, from the author and ID properties
+     * most managers use, so libraries depending on it aren't reported as missing.
+     *
+     * @param info the library information, after the manager ID line.
+     * @return the tag, or null if the information doesn't have an author and an ID.
+     */
+    private static String skippedTag(ByteBuffer info) {
+        try {
+            LibraryInfoBuffer buffer = new LibraryInfoBuffer(info);
+            
+            String author = buffer.optional("author").String();
+            String id = buffer.optional("id").String();
+            return author != null && id != null ? author + "/" + id : null;
+        } catch (LibraryException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Validates the libraries found by {@link FluffCore#validate()} and prints the report.
+     * Exits with status 1 if there are errors.
+     *
+     * @param args unused.
+     * @throws IOException if a library information can't be read.
+     */
+    public static void main(String[] args) throws IOException {
+        LibraryValidationReport report = FluffCore.validate();
+        
+        System.out.println(report);
+        if (!report.isValid()) System.exit(1);
+    }
+    
+    private static class Checked {
+        
+        private final List<Problem> problems;
+        private final ResolvedLibrary library;
+        private final boolean skipped;
+        private final String tag;
+        
+        private Checked(List<Problem> problems, ResolvedLibrary library, boolean skipped, String tag) {
+            this.problems = problems;
+            this.library = library;
+            this.skipped = skipped;
+            this.tag = tag;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package fluff.core.lib;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Loads a batch of resolved libraries concurrently, starting each library
+ * as soon as all of its dependencies from the same batch finished loading.
+ * The progress is tracked through a future, so the batch can be loaded without blocking a thread.
+ */
+class ParallelLoader {
+    
+    private final ClassLoader loader;
+    private final LibraryGraph graph;
+    private final Executor executor;
+    private final AtomicIntegerArray pending;
+    
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+    
+    private LibraryException failure;
+    private int running;
+    private int finished;
+    
+    /**
+     * Constructs a ParallelLoader for the given batch of libraries.
+     *
+     * @param loader the ClassLoader to use for loading the libraries.
+     * @param libraries the resolved libraries to load.
+     * @param executor the executor to run the library loading on.
+     */
+    ParallelLoader(ClassLoader loader, List<ResolvedLibrary> libraries, Executor executor) {
+        this.loader = loader;
+        this.graph = new LibraryGraph(libraries);
+        this.executor = executor;
+        this.pending = new AtomicIntegerArray(graph.inDegrees());
+    }
+    
+    /**
+     * Loads all libraries and waits for them to finish.
+     * If a library fails to load, libraries that haven't started yet are skipped
+     * and the first failure is thrown once the running ones finish.
+     *
+     * @throws LibraryException if a library fails to load.
+     */
+    void run() throws LibraryException {
+        try {
+            start().get();
+        } catch (ExecutionException e) {
+            throw (LibraryException) e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            
+            LibraryException failure = new LibraryException(e);
+            fail(failure);
+            throw failure;
+        }
+    }
+    
+    /**
+     * Starts loading all libraries without waiting for them.
+     * A library only counts as loaded once the future returned by its manager completes,
+     * so asynchronous libraries of independent branches load at the same time.
+     *
+     * @return a future completing once all libraries are loaded, or completing with the
+     *         first failure once the running ones finish.
+     */
+    CompletableFuture<Void> start() {
+        List<Integer> roots = new ArrayList<>();
+        for (int id = 0; id < graph.size(); id++) {
+            if (pending.get(id) == 0) roots.add(id);
+        }
+        
+        for (int id : roots) {
+            submit(id);
+        }
+        
+        check();
+        return done;
+    }
+    
+    private void submit(int id) {
+        synchronized (this) {
+            if (failure != null) return;
+            
+            running++;
+        }
+        
+        try {
+            executor.execute(() -> load(id));
+        } catch (RejectedExecutionException e) {
+            synchronized (this) {
+                running--;
+            }
+            
+            fail(new LibraryException(e));
+        }
+    }
+    
+    private void load(int id) {
+        ResolvedLibrary r = graph.get(id);
+        
+        if (isFailed()) {
+            loaded(id, false);
+            return;
+        }
+        
+        CompletableFuture<Void> future;
+        try {
+            future = LibraryResolver.loadAsync(loader, r);
+        } catch (Throwable e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        
+        future.whenComplete((v, e) -> {
+            if (e instanceof CompletionException) e = e.getCause();
+            
+            if (e instanceof LibraryException cause) {
+                fail(cause);
+            } else if (e != null) {
+                fail(new LibraryException(e));
+            }
+            
+            loaded(id, e == null);
+        });
+    }
+    
+    private void loaded(int id, boolean loaded) {
+        if (loaded) {
+            for (int dependent : graph.dependents(id)) {
+                if (pending.decrementAndGet(dependent) == 0) submit(dependent);
+            }
+        }
+        
+        synchronized (this) {
+            running--;
+            if (loaded) finished++;
+        }
+        
+        check();
+    }
+    
+    private synchronized boolean isFailed() {
+        return failure != null;
+    }
+    
+    private void fail(LibraryException e) {
+        synchronized (this) {
+            if (failure == null) failure = e;
+        }
+        
+        check();
+    }
+    
+    private void check() {
+        LibraryException failure;
+        synchronized (this) {
+            if (this.failure == null ? finished < graph.size() : running > 0) return;
+            
+            failure = this.failure;
+        }
+        
+        if (failure != null) {
+            done.completeExceptionally(failure);
+        } else {
+            done.complete(null);
+        }
+    }
+}
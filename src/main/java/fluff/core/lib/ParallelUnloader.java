@@ -0,0 +1,133 @@
+package fluff.core.lib;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Unloads a batch of loaded libraries concurrently, starting each library
+ * as soon as all of its dependents from the same batch finished unloading.
+ * A library that takes longer than the timeout once it started unloading is given up on,
+ * so its dependencies are unloaded anyway while it keeps running in the background.
+ */
+class ParallelUnloader {
+    
+    private final LibraryGraph graph;
+    private final Executor executor;
+    private final long timeout;
+    private final AtomicIntegerArray pending;
+    
+    private LibraryException failure;
+    private int finished;
+    
+    /**
+     * Constructs a ParallelUnloader for the given batch of libraries.
+     *
+     * @param libraries the loaded libraries to unload.
+     * @param executor the executor to run the library unloading on.
+     * @param timeout the time in milliseconds each library is given to unload.
+     */
+    ParallelUnloader(List<ResolvedLibrary> libraries, Executor executor, long timeout) {
+        this.graph = new LibraryGraph(libraries);
+        this.executor = executor;
+        this.timeout = timeout;
+        
+        int[] dependents = new int[graph.size()];
+        for (int id = 0; id < graph.size(); id++) {
+            dependents[id] = graph.dependents(id).length;
+        }
+        this.pending = new AtomicIntegerArray(dependents);
+    }
+    
+    /**
+     * Unloads all libraries and waits for them to finish or time out.
+     * Unlike loading, a failure doesn't stop the other libraries from unloading,
+     * the first failure is thrown once all of them are done, with the others suppressed.
+     *
+     * @throws LibraryException if a library fails or times out.
+     */
+    void run() throws LibraryException {
+        List<Integer> roots = new ArrayList<>();
+        for (int id = 0; id < graph.size(); id++) {
+            if (pending.get(id) == 0) roots.add(id);
+        }
+        
+        for (int id : roots) {
+            submit(id);
+        }
+        
+        synchronized (this) {
+            while (finished < graph.size()) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    
+                    fail(new LibraryException(e));
+                    break;
+                }
+            }
+            
+            if (failure != null) throw failure;
+        }
+    }
+    
+    private void submit(int id) {
+        ResolvedLibrary r = graph.get(id);
+        
+        CompletableFuture<Void> unload = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                // the time spent queued on the executor doesn't count
+                unload.orTimeout(timeout, TimeUnit.MILLISECONDS);
+                
+                try {
+                    LibraryResolver.unload(r);
+                    unload.complete(null);
+                } catch (Throwable e) {
+                    unload.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            unload.completeExceptionally(e);
+        }
+        
+        unload.whenComplete((v, e) -> done(id, e));
+    }
+    
+    private void done(int id, Throwable e) {
+        if (e instanceof CompletionException) e = e.getCause();
+        
+        if (e instanceof TimeoutException) {
+            fail(new LibraryException("Library timed out while unloading: " + graph.get(id).tag));
+        } else if (e instanceof LibraryException cause) {
+            fail(cause);
+        } else if (e != null) {
+            fail(new LibraryException(e));
+        }
+        
+        for (int dependency : graph.dependencies(id)) {
+            if (pending.decrementAndGet(dependency) == 0) submit(dependency);
+        }
+        
+        synchronized (this) {
+            finished++;
+            
+            notifyAll();
+        }
+    }
+    
+    private synchronized void fail(LibraryException e) {
+        if (failure == null) {
+            failure = e;
+        } else {
+            failure.addSuppressed(e);
+        }
+    }
+}
@@ -1,7 +1,8 @@
 package fluff.core.lib;
 
-import java.util.LinkedList;
+import java.net.URL;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Represents a library that has been resolved, including its dependencies and dependents.
@@ -10,13 +11,15 @@ public class ResolvedLibrary {
     
     /**
      * The list of libraries that depend on this library.
+     * New libraries link to loaded ones while other threads unload them or walk the graph, so it's safe to use from any thread.
      */
-    public final List<ResolvedLibrary> dependents = new LinkedList<>();
+    public final List<ResolvedLibrary> dependents = new CopyOnWriteArrayList<>();
     
     /**
      * The list of libraries that this library depends on.
+     * Safe to use from any thread.
      */
-    public final List<ResolvedLibrary> dependencies = new LinkedList<>();
+    public final List<ResolvedLibrary> dependencies = new CopyOnWriteArrayList<>();
     
     /**
      * The library manager associated with this resolved library.
@@ -33,6 +36,13 @@ public class ResolvedLibrary {
      */
     public final String tag;
     
+    /**
+     * The URL of the information this library was resolved from, or null if unknown.
+     */
+    public final URL source;
+    
+    private volatile ClassLoader classLoader;
+    
     /**
      * Constructs a ResolvedLibrary instance with the specified manager and library.
      *
@@ -40,9 +50,21 @@ public class ResolvedLibrary {
      * @param library the actual library instance.
      */
     public ResolvedLibrary(ILibraryManager manager, ILibrary library) {
+        this(manager, library, null);
+    }
+    
+    /**
+     * Constructs a ResolvedLibrary instance with the specified manager, library and source.
+     *
+     * @param manager the library manager associated with this resolved library.
+     * @param library the actual library instance.
+     * @param source the URL of the information the library was resolved from.
+     */
+    public ResolvedLibrary(ILibraryManager manager, ILibrary library, URL source) {
         this.manager = manager;
         this.library = library;
         this.tag = manager.getTag(library);
+        this.source = source;
     }
     
     /**
@@ -56,6 +78,19 @@ public class ResolvedLibrary {
         r.dependents.add(this);
     }
     
+    /**
+     * Gets the class loader this library was loaded with.
+     *
+     * @return the class loader of the library, or null if it isn't loaded.
+     */
+    public ClassLoader getClassLoader() {
+        return classLoader;
+    }
+    
+    void setClassLoader(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+    
     @Override
     public String toString() {
         return tag;
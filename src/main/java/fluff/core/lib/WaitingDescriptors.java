@@ -0,0 +1,79 @@
+package fluff.core.lib;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Library information waiting for its library manager to be registered, indexed by the manager ID,
+ * so only the information waiting for a newly registered manager is handed back.
+ * Not thread safe.
+ */
+class WaitingDescriptors {
+    
+    private final Map<String, List<LibraryDescriptor>> waiting = new LinkedHashMap<>();
+    
+    /**
+     * Adds library information whose manager isn't registered.
+     *
+     * @param descriptor the library information.
+     */
+    void add(LibraryDescriptor descriptor) {
+        waiting.computeIfAbsent(descriptor.manager, id -> new ArrayList<>()).add(descriptor);
+    }
+    
+    /**
+     * Removes the library information whose manager is registered now.
+     * Only the manager IDs are checked, nothing is read again.
+     *
+     * @return the library information that can be resolved, in the order it was added for each manager.
+     */
+    List<LibraryDescriptor> wake() {
+        List<LibraryDescriptor> ready = new ArrayList<>();
+        
+        Iterator<Map.Entry<String, List<LibraryDescriptor>>> it = waiting.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, List<LibraryDescriptor>> e = it.next();
+            if (e.getKey() == null || !LibraryResolver.MANAGERS.containsKey(e.getKey())) continue;
+            
+            ready.addAll(e.getValue());
+            it.remove();
+        }
+        
+        return ready;
+    }
+    
+    /**
+     * Gets the URLs of all the waiting library information.
+     *
+     * @return the URLs, grouped by manager ID.
+     */
+    List<URL> urls() {
+        List<URL> urls = new ArrayList<>();
+        for (List<LibraryDescriptor> list : waiting.values()) {
+            for (LibraryDescriptor d : list) {
+                urls.add(d.url);
+            }
+        }
+        return urls;
+    }
+    
+    /**
+     * Checks if no library information is waiting.
+     *
+     * @return true if nothing is waiting, false otherwise.
+     */
+    boolean isEmpty() {
+        return waiting.isEmpty();
+    }
+    
+    /**
+     * Drops all the waiting library information.
+     */
+    void clear() {
+        waiting.clear();
+    }
+}
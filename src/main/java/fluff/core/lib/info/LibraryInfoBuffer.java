@@ -0,0 +1,257 @@
+package fluff.core.lib.info;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import fluff.core.lib.LibraryException;
+
+/**
+ * Reads library information directly from a buffer holding the whole file.
+ * The properties are found in a single pass that only records where each key and value is,
+ * and a value is only decoded into a string the first time it's requested.
+ * Lines joined with the new line suffix '\' are the only ones copied.
+ * The information is decoded as UTF-8, whatever the default charset of the platform is.
+ */
+public class LibraryInfoBuffer extends LibraryInfoReader {
+    
+    /**
+     * Files at least this large are memory mapped instead of read.
+     */
+    private static final long MAP_THRESHOLD = 64 * 1024;
+    
+    /**
+     * The charset library information is decoded with, and encoded with by sources that create it.
+     */
+    public static final Charset CHARSET = StandardCharsets.UTF_8;
+    
+    private final Charset charset = CHARSET;
+    
+    private ByteBuffer[] sources = new ByteBuffer[8];
+    private int[] spans = new int[8 * 4];
+    private int count;
+    
+    /**
+     * Constructs a new LibraryInfoBuffer and finds the properties between the position and the limit of the buffer.
+     *
+     * @param buffer the buffer containing the library information
+     * @throws LibraryException if a line is not a valid property
+     */
+    public LibraryInfoBuffer(ByteBuffer buffer) throws LibraryException {
+        ByteBuffer joined = null;
+        
+        int pos = buffer.position();
+        int limit = buffer.limit();
+        while (pos < limit) {
+            int end = lineEnd(buffer, pos, limit);
+            int next = nextLine(buffer, end, limit);
+            
+            int start = skipSpaces(buffer, pos, end);
+            end = stripComment(buffer, start, end);
+            pos = next;
+            
+            if (start == end || buffer.get(end - 1) != '\\') {
+                if (start != end) add(buffer, start, end);
+                continue;
+            }
+            
+            // join the lines ending with '\' with the next ones
+            joined = append(joined, buffer, start, end - 1);
+            while (pos < limit) {
+                end = lineEnd(buffer, pos, limit);
+                next = nextLine(buffer, end, limit);
+                
+                start = skipSpaces(buffer, pos, end);
+                end = stripComment(buffer, start, end);
+                pos = next;
+                
+                if (start == end || buffer.get(end - 1) != '\\') {
+                    joined = append(joined, buffer, start, end);
+                    break;
+                }
+                
+                joined = append(joined, buffer, start, end - 1);
+            }
+            
+            ByteBuffer line = joined.flip().slice();
+            joined = null;
+            
+            int lineStart = skipSpaces(line, 0, line.limit());
+            int lineEnd = trimEnd(line, lineStart, line.limit());
+            if (lineStart != lineEnd) add(line, lineStart, lineEnd);
+        }
+    }
+    
+    /**
+     * Reads the whole content of the specified URL into a buffer.
+     * Local files are read through a single channel, and large ones are memory mapped.
+     *
+     * @param url the URL to read
+     * @return a buffer containing the content of the URL
+     * @throws IOException if an I/O error occurs
+     */
+    public static ByteBuffer read(URL url) throws IOException {
+        if (url.getProtocol().equals("file")) {
+            try (FileChannel channel = FileChannel.open(Path.of(url.toURI()), StandardOpenOption.READ)) {
+                long size = channel.size();
+                
+                if (size >= MAP_THRESHOLD) return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                
+                ByteBuffer buffer = ByteBuffer.allocate((int) size);
+                while (buffer.hasRemaining() && channel.read(buffer) != -1);
+                return buffer.flip();
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                // not a local path, read it as a stream
+            }
+        }
+        
+        try (InputStream in = url.openStream()) {
+            return ByteBuffer.wrap(in.readAllBytes());
+        }
+    }
+    
+    /**
+     * Reads the first line of the buffer, which holds the library manager ID,
+     * and moves the position of the buffer to the next line.
+     *
+     * @param buffer the buffer containing the library information
+     * @return the first line, or null if the buffer is empty
+     */
+    public static String readHeader(ByteBuffer buffer) {
+        int pos = buffer.position();
+        int limit = buffer.limit();
+        if (pos == limit) return null;
+        
+        int end = lineEnd(buffer, pos, limit);
+        String header = decode(buffer, pos, end, CHARSET);
+        
+        buffer.position(nextLine(buffer, end, limit));
+        return header;
+    }
+    
+    @Override
+    public Set<String> getKeys() {
+        Set<String> keys = new LinkedHashSet<>();
+        for (int i = 0; i < count; i++) {
+            keys.add(decode(sources[i], spans[i * 4], spans[i * 4 + 1], charset));
+        }
+        return Collections.unmodifiableSet(keys);
+    }
+    
+    @Override
+    protected LibraryInfoValue get(String key) {
+        LibraryInfoValue value = properties.get(key);
+        if (value != null) return value;
+        
+        for (int i = count - 1; i >= 0; i--) { // the last occurrence wins
+            if (!matches(sources[i], spans[i * 4], spans[i * 4 + 1], key)) continue;
+            
+            value = new LibraryInfoValue(decode(sources[i], spans[i * 4 + 2], spans[i * 4 + 3], charset));
+            properties.put(key, value);
+            return value;
+        }
+        return null;
+    }
+    
+    private void add(ByteBuffer source, int start, int end) throws LibraryException {
+        int space = -1;
+        for (int i = start; i < end; i++) {
+            if (source.get(i) == ' ') {
+                space = i;
+                break;
+            }
+        }
+        if (space == -1) throw new LibraryException("\"" + decode(source, start, end, charset) + "\" is not a valid property!");
+        
+        if (count == sources.length) {
+            sources = Arrays.copyOf(sources, count * 2);
+            spans = Arrays.copyOf(spans, count * 2 * 4);
+        }
+        
+        sources[count] = source;
+        spans[count * 4] = start;
+        spans[count * 4 + 1] = space;
+        spans[count * 4 + 2] = skipSpaces(source, space + 1, end);
+        spans[count * 4 + 3] = end;
+        count++;
+    }
+    
+    private boolean matches(ByteBuffer source, int start, int end, String key) {
+        for (int i = 0; i < key.length(); i++) {
+            if (key.charAt(i) > 0x7F) return decode(source, start, end, charset).equals(key);
+        }
+        
+        if (end - start != key.length()) return false;
+        
+        for (int i = 0; i < key.length(); i++) {
+            if (source.get(start + i) != key.charAt(i)) return false;
+        }
+        return true;
+    }
+    
+    private static ByteBuffer append(ByteBuffer joined, ByteBuffer source, int start, int end) {
+        int length = end - start;
+        
+        if (joined == null) joined = ByteBuffer.allocate(Math.max(64, length * 2));
+        if (joined.remaining() < length) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(joined.capacity() * 2, joined.position() + length));
+            joined = bigger.put(joined.flip());
+        }
+        
+        return joined.put(joined.position(), source, start, length).position(joined.position() + length);
+    }
+    
+    private static String decode(ByteBuffer source, int start, int end, Charset charset) {
+        if (source.hasArray()) return new String(source.array(), source.arrayOffset() + start, end - start, charset);
+        
+        byte[] bytes = new byte[end - start];
+        source.get(start, bytes);
+        return new String(bytes, charset);
+    }
+    
+    private static int lineEnd(ByteBuffer buffer, int pos, int limit) {
+        while (pos < limit) {
+            byte b = buffer.get(pos);
+            if (b == '\n' || b == '\r') return pos;
+            pos++;
+        }
+        return limit;
+    }
+    
+    private static int nextLine(ByteBuffer buffer, int end, int limit) {
+        if (end >= limit) return limit;
+        if (buffer.get(end) == '\r' && end + 1 < limit && buffer.get(end + 1) == '\n') return end + 2;
+        return end + 1;
+    }
+    
+    private static int skipSpaces(ByteBuffer buffer, int pos, int end) {
+        while (pos < end && (buffer.get(pos) & 0xFF) <= ' ') pos++;
+        return pos;
+    }
+    
+    private static int trimEnd(ByteBuffer buffer, int start, int end) {
+        while (end > start && (buffer.get(end - 1) & 0xFF) <= ' ') end--;
+        return end;
+    }
+    
+    private static int stripComment(ByteBuffer buffer, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (buffer.get(i) == '#') {
+                end = i;
+                break;
+            }
+        }
+        return trimEnd(buffer, start, end);
+    }
+}
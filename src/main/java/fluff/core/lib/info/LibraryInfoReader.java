@@ -2,8 +2,10 @@ package fluff.core.lib.info;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 import fluff.core.lib.LibraryException;
 
@@ -14,6 +16,11 @@ public class LibraryInfoReader {
     
     protected final Map<String, LibraryInfoValue> properties = new HashMap<>();
     
+    /**
+     * Constructs a new LibraryInfoReader without any properties, for subclasses that read them differently.
+     */
+    protected LibraryInfoReader() {}
+    
     /**
      * Constructs a new LibraryInfoReader and populates the properties map with information read from the BufferedReader.
      * 
@@ -69,7 +76,8 @@ public class LibraryInfoReader {
      * @return the value of the property if present, or the default value otherwise
      */
     public LibraryInfoValue optional(String key, String defaultValue) {
-        return properties.containsKey(key) ? properties.get(key) : new LibraryInfoValue(defaultValue);
+        LibraryInfoValue value = get(key);
+        return value != null ? value : new LibraryInfoValue(defaultValue);
     }
     
     /**
@@ -81,7 +89,9 @@ public class LibraryInfoReader {
      * @throws LibraryException if the property is not present
      */
     public LibraryInfoValue required(String key, String exception) throws LibraryException {
-        return required(key, new LibraryException(exception));
+        LibraryInfoValue value = get(key);
+        if (value == null) throw new LibraryException(exception);
+        return value;
     }
     
     /**
@@ -93,30 +103,50 @@ public class LibraryInfoReader {
      * @throws LibraryException if the property is not present
      */
     public LibraryInfoValue required(String key, LibraryException exception) throws LibraryException {
-        if (!properties.containsKey(key)) throw exception;
+        LibraryInfoValue value = get(key);
+        if (value == null) throw exception;
+        return value;
+    }
+    
+    /**
+     * Gets the value of the specified property.
+     * 
+     * @param key the key of the property
+     * @return the value of the property, or null if it's not present
+     */
+    protected LibraryInfoValue get(String key) {
         return properties.get(key);
     }
     
+    /**
+     * Retrieves the keys of all the properties read.
+     * 
+     * @return an unmodifiable set of the property keys
+     */
+    public Set<String> getKeys() {
+        return Collections.unmodifiableSet(properties.keySet());
+    }
+    
     private static String readLine(BufferedReader br) throws IOException {
-    	String line = br.readLine();
-    	if (line == null) return null;
-    	
-        line = line.trim();
+        StringBuilder sb = null;
         
-        int comment = line.indexOf('#');
-        if (comment != -1) {
-            line = line.substring(0, comment).trim();
+        String line;
+        while ((line = br.readLine()) != null) {
+            line = line.trim();
+            
+            int comment = line.indexOf('#');
+            if (comment != -1) {
+                line = line.substring(0, comment).trim();
+            }
+            
+            if (line.isEmpty() || !line.endsWith("\\")) {
+                return sb != null ? sb.append(line).toString() : line;
+            }
+            
+            if (sb == null) sb = new StringBuilder();
+            sb.append(line, 0, line.length() - 1); // joined with the next line
         }
         
-        if (line.isEmpty()) return "";
-        
-        if (line.endsWith("\\")) {
-        	String next = readLine(br);
-        	if (next == null) next = "";
-        	
-        	return line.substring(0, line.length() - 1) + next;
-        }
-    	
-    	return line.trim();
+        return sb != null ? sb.toString() : null;
     }
 }
@@ -0,0 +1,82 @@
+package fluff.core.lib.info;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import fluff.core.lib.LibraryException;
+
+/**
+ * Declares the properties a library manager expects in the library information,
+ * so it can be validated without creating the library.
+ * <b>Example</b>: new LibraryInfoSchema().required("id", LibraryInfoType.STRING).optional("depends", LibraryInfoType.STRING_SET).
+ */
+public class LibraryInfoSchema {
+    
+    private final Map<String, Property> properties = new LinkedHashMap<>();
+    
+    /**
+     * Declares a property that must be present.
+     *
+     * @param key the key of the property
+     * @param type the type the value must be valid for
+     * @return this schema
+     */
+    public LibraryInfoSchema required(String key, LibraryInfoType<?> type) {
+        properties.put(key, new Property(type, true));
+        return this;
+    }
+    
+    /**
+     * Declares a property that may be present.
+     *
+     * @param key the key of the property
+     * @param type the type the value must be valid for, if present
+     * @return this schema
+     */
+    public LibraryInfoSchema optional(String key, LibraryInfoType<?> type) {
+        properties.put(key, new Property(type, false));
+        return this;
+    }
+    
+    /**
+     * Checks the library information against this schema, collecting every problem instead of stopping at the first one.
+     * Missing required properties and invalid values are errors, undeclared properties are warnings.
+     *
+     * @param reader the library information to check
+     * @param errors the list to add the errors to
+     * @param warnings the list to add the warnings to
+     */
+    public void validate(LibraryInfoReader reader, List<String> errors, List<String> warnings) {
+        for (Map.Entry<String, Property> e : properties.entrySet()) {
+            LibraryInfoValue value = reader.get(e.getKey());
+            
+            if (value == null || value.isNull()) {
+                if (e.getValue().required) errors.add("Property missing: " + e.getKey());
+                continue;
+            }
+            
+            try {
+                value.as(e.getValue().type);
+            } catch (LibraryException ex) {
+                errors.add("Invalid property " + e.getKey() + ": " + ex.getMessage()
+                        + (ex.getCause() != null ? " (" + ex.getCause().getMessage() + ")" : ""));
+            }
+        }
+        
+        for (String key : reader.getKeys()) {
+            if (!properties.containsKey(key)) warnings.add("Unknown property: " + key);
+        }
+    }
+    
+    private static class Property {
+        
+        private final LibraryInfoType<?> type;
+        private final boolean required;
+        
+        private Property(LibraryInfoType<?> type, boolean required) {
+            this.type = type;
+            this.required = required;
+        }
+    }
+}
@@ -4,6 +4,8 @@ import fluff.core.lib.LibraryException;
 
 /**
  * Utility class for transforming values during library information processing.
+ * The result is evaluated once and memoized. For the common types, {@link LibraryInfoValue#as(LibraryInfoType)}
+ * converts without building a chain of transforms.
  *
  * @param <F> the type of the original value
  * @param <T> the type of the transformed value
@@ -13,6 +15,9 @@ public class LibraryInfoTransform<F, T> {
     protected final LibraryInfoTransform<F, T> parent;
     protected final F value;
     
+    private T result;
+    private boolean evaluated;
+    
     /**
      * Constructs a new LibraryInfoTransform with the specified parent and value.
      *
@@ -55,6 +60,20 @@ public class LibraryInfoTransform<F, T> {
      * @throws LibraryException if an error occurs during the transformation
      */
     public T Result() throws LibraryException {
+        if (!evaluated) {
+            result = evaluate();
+            evaluated = true;
+        }
+        return result;
+    }
+    
+    /**
+     * Evaluates the transformed value, called once by {@link #Result()}.
+     *
+     * @return the transformed value
+     * @throws LibraryException if an error occurs during the transformation
+     */
+    protected T evaluate() throws LibraryException {
         return parent != null ? parent.Result() : null;
     }
 }
@@ -40,7 +40,7 @@ public class LibraryInfoTransformIf<F, T> extends LibraryInfoTransform<F, T> {
     }
     
     @Override
-    public T Result() throws LibraryException {
+    protected T evaluate() throws LibraryException {
         try {
             if (ifFunc.invoke(value)) {
                 return resultFunc.invoke(value);
@@ -48,6 +48,6 @@ public class LibraryInfoTransformIf<F, T> extends LibraryInfoTransform<F, T> {
         } catch (Exception e) {
             throw new LibraryException(e);
         }
-        return super.Result();
+        return super.evaluate();
     }
 }
@@ -0,0 +1,199 @@
+package fluff.core.lib.info;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Converts the text of a library information value to a typed value.
+ * Conversions are memoized by {@link LibraryInfoValue#as(LibraryInfoType)}, comparing types by identity,
+ * so the same instance should be reused, like the constants of this interface.
+ *
+ * @param <T> the type of the converted value
+ */
+@FunctionalInterface
+public interface LibraryInfoType<T> {
+    
+    /**
+     * The value as it is.
+     */
+    LibraryInfoType<String> STRING = value -> value;
+    
+    /**
+     * A boolean, true if the value is "true" ignoring case.
+     */
+    LibraryInfoType<Boolean> BOOLEAN = Boolean::parseBoolean;
+    
+    /**
+     * An integer.
+     */
+    LibraryInfoType<Integer> INT = Integer::parseInt;
+    
+    /**
+     * A long.
+     */
+    LibraryInfoType<Long> LONG = Long::parseLong;
+    
+    /**
+     * A float.
+     */
+    LibraryInfoType<Float> FLOAT = Float::parseFloat;
+    
+    /**
+     * A double.
+     */
+    LibraryInfoType<Double> DOUBLE = Double::parseDouble;
+    
+    /**
+     * A duration, either an ISO-8601 duration like "PT10S" or an amount followed by
+     * one of the units ns, us, ms, s, m, h or d, like "500ms". Amounts without a unit are milliseconds.
+     */
+    LibraryInfoType<Duration> DURATION = LibraryInfoType::parseDuration;
+    
+    /**
+     * A size in bytes, an amount followed by one of the units B, K, M, G or T, optionally followed
+     * by "B" or "iB", like "64KB". The units are powers of 1024, amounts without a unit are bytes.
+     */
+    LibraryInfoType<Long> SIZE = LibraryInfoType::parseSize;
+    
+    /**
+     * A list of comma separated strings, trimmed, without the empty ones.
+     */
+    LibraryInfoType<List<String>> STRING_LIST = list(STRING);
+    
+    /**
+     * A set of comma separated strings in their original order, trimmed, without the empty ones.
+     */
+    LibraryInfoType<Set<String>> STRING_SET = set(STRING);
+    
+    /**
+     * Converts the text of a value.
+     *
+     * @param value the text of the value, never null
+     * @return the converted value
+     * @throws Exception if the text isn't a valid value of this type
+     */
+    T parse(String value) throws Exception;
+    
+    /**
+     * Creates a type of unmodifiable lists of comma separated elements.
+     * Elements are trimmed and empty elements are skipped.
+     *
+     * @param element the type of the elements
+     * @param <E> the type of the elements
+     * @return the list type
+     */
+    static <E> LibraryInfoType<List<E>> list(LibraryInfoType<E> element) {
+        return value -> {
+            List<E> list = new ArrayList<>();
+            for (String part : value.split(",")) {
+                part = part.trim();
+                if (!part.isEmpty()) list.add(element.parse(part));
+            }
+            return Collections.unmodifiableList(list);
+        };
+    }
+    
+    /**
+     * Creates a type of unmodifiable sets of comma separated elements, in their original order.
+     * Elements are trimmed and empty elements are skipped.
+     *
+     * @param element the type of the elements
+     * @param <E> the type of the elements
+     * @return the set type
+     */
+    static <E> LibraryInfoType<Set<E>> set(LibraryInfoType<E> element) {
+        return value -> {
+            Set<E> set = new LinkedHashSet<>();
+            for (String part : value.split(",")) {
+                part = part.trim();
+                if (!part.isEmpty()) set.add(element.parse(part));
+            }
+            return Collections.unmodifiableSet(set);
+        };
+    }
+    
+    /**
+     * Creates a type of unmodifiable maps of comma separated "key=value" entries, in their original order.
+     * Keys and values are trimmed and empty entries are skipped.
+     *
+     * @param key the type of the keys
+     * @param element the type of the values
+     * @param <K> the type of the keys
+     * @param <V> the type of the values
+     * @return the map type
+     */
+    static <K, V> LibraryInfoType<Map<K, V>> map(LibraryInfoType<K> key, LibraryInfoType<V> element) {
+        return value -> {
+            Map<K, V> map = new LinkedHashMap<>();
+            for (String part : value.split(",")) {
+                part = part.trim();
+                if (part.isEmpty()) continue;
+                
+                int equals = part.indexOf('=');
+                if (equals == -1) throw new IllegalArgumentException("\"" + part + "\" is not a key=value entry");
+                
+                map.put(key.parse(part.substring(0, equals).trim()), element.parse(part.substring(equals + 1).trim()));
+            }
+            return Collections.unmodifiableMap(map);
+        };
+    }
+    
+    private static Duration parseDuration(String value) {
+        value = value.trim();
+        if (value.startsWith("P") || value.startsWith("p")) return Duration.parse(value);
+        
+        int end = amountEnd(value);
+        long amount = Long.parseLong(value.substring(0, end));
+        
+        return switch (value.substring(end).trim().toLowerCase(Locale.ROOT)) {
+            case "ns" -> Duration.ofNanos(amount);
+            case "us" -> Duration.of(amount, ChronoUnit.MICROS);
+            case "", "ms" -> Duration.ofMillis(amount);
+            case "s" -> Duration.ofSeconds(amount);
+            case "m" -> Duration.ofMinutes(amount);
+            case "h" -> Duration.ofHours(amount);
+            case "d" -> Duration.ofDays(amount);
+            default -> throw new IllegalArgumentException("Unknown duration unit: " + value.substring(end).trim());
+        };
+    }
+    
+    private static Long parseSize(String value) {
+        value = value.trim();
+        
+        int end = amountEnd(value);
+        long amount = Long.parseLong(value.substring(0, end));
+        
+        String unit = value.substring(end).trim().toUpperCase(Locale.ROOT);
+        if (unit.endsWith("IB")) {
+            unit = unit.substring(0, unit.length() - 2);
+        } else if (unit.length() == 2 && unit.endsWith("B")) {
+            unit = unit.substring(0, 1);
+        }
+        
+        int shift = switch (unit) {
+            case "", "B" -> 0;
+            case "K" -> 10;
+            case "M" -> 20;
+            case "G" -> 30;
+            case "T" -> 40;
+            default -> throw new IllegalArgumentException("Unknown size unit: " + value.substring(end).trim());
+        };
+        
+        if (shift > 0 && Math.abs(amount) > Long.MAX_VALUE >> shift) throw new ArithmeticException("Size too large: " + value);
+        return amount << shift;
+    }
+    
+    private static int amountEnd(String value) {
+        int end = value.startsWith("-") ? 1 : 0;
+        while (end < value.length() && Character.isDigit(value.charAt(end))) end++;
+        return end;
+    }
+}
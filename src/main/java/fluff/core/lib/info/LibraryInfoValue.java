@@ -1,13 +1,20 @@
 package fluff.core.lib.info;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
 import fluff.core.lib.LibraryException;
 
 /**
  * Represents a value parsed from library information.
+ * Typed conversions through {@link #as(LibraryInfoType)} and the typed getters are memoized,
+ * so values read in hot paths are only parsed once.
  */
 public class LibraryInfoValue {
     
     private final String value;
+    private volatile Converted converted;
     
     /**
      * Constructs a new LibraryInfoValue with the specified value.
@@ -20,6 +27,7 @@ public class LibraryInfoValue {
     
     /**
      * Transforms the value to the specified type.
+     * Unlike {@link #as(LibraryInfoType)}, the result isn't memoized across calls.
      *
      * @param clazz the class representing the desired type
      * @param <V> the type to transform to
@@ -39,19 +47,66 @@ public class LibraryInfoValue {
     }
     
     /**
-     * Retrieves the value as a boolean.
+     * Retrieves the value converted to the specified type.
+     * The last conversion, or its failure, is memoized, so reading the value repeatedly
+     * as the same type only parses it once.
      *
-     * @return the value as a boolean
-     * @throws LibraryException if the value cannot be parsed as a boolean
+     * @param type the type to convert to
+     * @param <T> the type of the converted value
+     * @return the converted value, or null if the value is null
+     * @throws LibraryException if the value isn't a valid value of the type
      */
-    public boolean Boolean() throws LibraryException {
+    @SuppressWarnings("unchecked")
+    public <T> T as(LibraryInfoType<T> type) throws LibraryException {
+        if (value == null) return null;
+        
+        Converted converted = this.converted;
+        if (converted == null || converted.type != type) {
+            converted = convert(type);
+            this.converted = converted;
+        }
+        
+        if (converted.failure != null) throw converted.failure;
+        return (T) converted.value;
+    }
+    
+    /**
+     * Retrieves the value converted to the specified type, or the default value if the value is null.
+     *
+     * @param type the type to convert to
+     * @param defaultValue the value to return if the value is null
+     * @param <T> the type of the converted value
+     * @return the converted value, or the default value if the value is null
+     * @throws LibraryException if the value isn't a valid value of the type
+     */
+    public <T> T as(LibraryInfoType<T> type, T defaultValue) throws LibraryException {
+        return value != null ? as(type) : defaultValue;
+    }
+    
+    private Converted convert(LibraryInfoType<?> type) {
         try {
-            return Boolean.parseBoolean(value);
+            return new Converted(type, type.parse(value), null);
         } catch (Exception e) {
-            throw new LibraryException(e);
+            return new Converted(type, null, new LibraryException("Invalid value \"" + value + "\"", e));
         }
     }
     
+    private <T> T required(LibraryInfoType<T> type) throws LibraryException {
+        T converted = as(type);
+        if (converted == null) throw new LibraryException("Value missing");
+        return converted;
+    }
+    
+    /**
+     * Retrieves the value as a boolean.
+     *
+     * @return the value as a boolean, false if the value is null
+     * @throws LibraryException if the value cannot be parsed as a boolean
+     */
+    public boolean Boolean() throws LibraryException {
+        return as(LibraryInfoType.BOOLEAN, false);
+    }
+    
     /**
      * Retrieves the value as an integer.
      *
@@ -59,11 +114,7 @@ public class LibraryInfoValue {
      * @throws LibraryException if the value cannot be parsed as an integer
      */
     public int Int() throws LibraryException {
-        try {
-            return Integer.parseInt(value);
-        } catch (Exception e) {
-            throw new LibraryException(e);
-        }
+        return required(LibraryInfoType.INT);
     }
     
     /**
@@ -73,11 +124,7 @@ public class LibraryInfoValue {
      * @throws LibraryException if the value cannot be parsed as a float
      */
     public float Float() throws LibraryException {
-        try {
-            return Float.parseFloat(value);
-        } catch (Exception e) {
-            throw new LibraryException(e);
-        }
+        return required(LibraryInfoType.FLOAT);
     }
     
     /**
@@ -87,11 +134,7 @@ public class LibraryInfoValue {
      * @throws LibraryException if the value cannot be parsed as a long
      */
     public long Long() throws LibraryException {
-        try {
-            return Long.parseLong(value);
-        } catch (Exception e) {
-            throw new LibraryException(e);
-        }
+        return required(LibraryInfoType.LONG);
     }
     
     /**
@@ -101,11 +144,47 @@ public class LibraryInfoValue {
      * @throws LibraryException if the value cannot be parsed as a double
      */
     public double Double() throws LibraryException {
-        try {
-            return Double.parseDouble(value);
-        } catch (Exception e) {
-            throw new LibraryException(e);
-        }
+        return required(LibraryInfoType.DOUBLE);
+    }
+    
+    /**
+     * Retrieves the value as a duration, see {@link LibraryInfoType#DURATION}.
+     *
+     * @return the value as a duration, or null if the value is null
+     * @throws LibraryException if the value cannot be parsed as a duration
+     */
+    public Duration Duration() throws LibraryException {
+        return as(LibraryInfoType.DURATION);
+    }
+    
+    /**
+     * Retrieves the value as a size in bytes, see {@link LibraryInfoType#SIZE}.
+     *
+     * @return the value as a number of bytes
+     * @throws LibraryException if the value cannot be parsed as a size
+     */
+    public long Size() throws LibraryException {
+        return required(LibraryInfoType.SIZE);
+    }
+    
+    /**
+     * Retrieves the value as a list of comma separated strings, see {@link LibraryInfoType#STRING_LIST}.
+     *
+     * @return the value as an unmodifiable list, empty if the value is null
+     * @throws LibraryException never, the conversion can't fail
+     */
+    public List<String> List() throws LibraryException {
+        return as(LibraryInfoType.STRING_LIST, List.of());
+    }
+    
+    /**
+     * Retrieves the value as a set of comma separated strings, see {@link LibraryInfoType#STRING_SET}.
+     *
+     * @return the value as an unmodifiable set, empty if the value is null
+     * @throws LibraryException never, the conversion can't fail
+     */
+    public Set<String> Set() throws LibraryException {
+        return as(LibraryInfoType.STRING_SET, Set.of());
     }
     
     /**
@@ -125,4 +204,20 @@ public class LibraryInfoValue {
     public boolean isNotNull() {
         return value != null;
     }
+    
+    /**
+     * A memoized conversion of the value.
+     */
+    private static class Converted {
+        
+        private final LibraryInfoType<?> type;
+        private final Object value;
+        private final LibraryException failure;
+        
+        private Converted(LibraryInfoType<?> type, Object value, LibraryException failure) {
+            this.type = type;
+            this.value = value;
+            this.failure = failure;
+        }
+    }
 }
@@ -0,0 +1,84 @@
+package fluff.core.lib.profile;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Listener that collects the timed phases and writes them as a Chrome trace-format JSON file,
+ * which can be opened in {@code chrome://tracing} or Perfetto.
+ */
+public class ChromeTraceListener implements LibraryListener {
+    
+    private final List<LibraryEvent> events = new ArrayList<>();
+    
+    @Override
+    public synchronized void onEvent(LibraryEvent event) {
+        events.add(event);
+    }
+    
+    /**
+     * Gets the events collected so far.
+     *
+     * @return a copy of the collected events.
+     */
+    public synchronized List<LibraryEvent> getEvents() {
+        return List.copyOf(events);
+    }
+    
+    /**
+     * Writes the collected events to the specified file.
+     *
+     * @param file the file to write the trace to.
+     * @throws IOException if an I/O error occurs.
+     */
+    public synchronized void write(Path file) throws IOException {
+        long origin = events.stream()
+                .mapToLong(e -> e.start)
+                .min()
+                .orElse(0);
+        
+        try (Writer w = Files.newBufferedWriter(file)) {
+            w.write("{\"traceEvents\":[");
+            
+            for (int i = 0; i < events.size(); i++) {
+                LibraryEvent e = events.get(i);
+                
+                if (i > 0) w.write(",");
+                w.write("\n{\"name\":\"" + escape(e.tag != null ? e.phase + " " + e.tag : e.phase.name()) + "\""
+                        + ",\"cat\":\"" + e.phase + "\""
+                        + ",\"ph\":\"X\""
+                        + ",\"ts\":" + (e.start - origin) / 1000.0
+                        + ",\"dur\":" + e.duration / 1000.0
+                        + ",\"pid\":1"
+                        + ",\"tid\":" + e.threadID
+                        + ",\"args\":{\"thread\":\"" + escape(e.threadName) + "\"}}");
+            }
+            
+            w.write("\n]}\n");
+        }
+    }
+    
+    static String escape(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,59 @@
+package fluff.core.lib.profile;
+
+/**
+ * Represents a timed phase of resolving or loading a library.
+ */
+public class LibraryEvent {
+    
+    /**
+     * The phase that was timed.
+     */
+    public final LibraryPhase phase;
+    
+    /**
+     * The tag of the library, or null if the phase isn't specific to a library.
+     */
+    public final String tag;
+    
+    /**
+     * The ID of the thread the phase ran on.
+     */
+    public final long threadID;
+    
+    /**
+     * The name of the thread the phase ran on.
+     */
+    public final String threadName;
+    
+    /**
+     * The start time of the phase, as returned by {@link System#nanoTime()}.
+     */
+    public final long start;
+    
+    /**
+     * The duration of the phase in nanoseconds.
+     */
+    public final long duration;
+    
+    /**
+     * Constructs a new LibraryEvent for the current thread.
+     *
+     * @param phase the phase that was timed.
+     * @param tag the tag of the library, or null if the phase isn't specific to a library.
+     * @param start the start time of the phase, as returned by {@link System#nanoTime()}.
+     * @param duration the duration of the phase in nanoseconds.
+     */
+    public LibraryEvent(LibraryPhase phase, String tag, long start, long duration) {
+        this.phase = phase;
+        this.tag = tag;
+        this.threadID = Thread.currentThread().getId();
+        this.threadName = Thread.currentThread().getName();
+        this.start = start;
+        this.duration = duration;
+    }
+    
+    @Override
+    public String toString() {
+        return phase + (tag != null ? " " + tag : "") + " " + (duration / 1000) + "us";
+    }
+}
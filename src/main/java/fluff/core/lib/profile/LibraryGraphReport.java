@@ -0,0 +1,306 @@
+package fluff.core.lib.profile;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import fluff.core.lib.LibraryGraph;
+import fluff.core.lib.ResolvedLibrary;
+
+/**
+ * Analysis of a library dependency graph, weighted by the time each library took to load.
+ * It finds the critical path, the longest chain of dependencies that no amount of parallel
+ * loading can shorten, together with the depth, the number of transitive dependencies and
+ * the slack of each library. Cutting a dependency edge on the critical path is what shortens
+ * the startup the most, libraries with slack can be delayed without slowing it down.
+ * The report can be written in the Graphviz DOT format or as JSON.
+ */
+public class LibraryGraphReport {
+    
+    private final LibraryGraph graph;
+    private final int[] order;
+    private final long[] weights;
+    private final int[] depths;
+    private final int[] closures;
+    private final long[] finishes;
+    private final int[] previous;
+    private final long[] slacks;
+    private final boolean[] critical;
+    private final List<ResolvedLibrary> criticalPath;
+    private final long criticalTime;
+    private final long totalTime;
+    private final int maxWidth;
+    
+    /**
+     * Constructs a new LibraryGraphReport of the specified graph.
+     * Libraries that are part of a cycle, or depend on one, are left out.
+     *
+     * @param graph the dependency graph to analyze.
+     * @param durations the time each library took to load in nanoseconds, indexed by tag,
+     *                  or null to weight every library as 1.
+     */
+    public LibraryGraphReport(LibraryGraph graph, Map<String, Long> durations) {
+        this.graph = graph;
+        
+        int size = graph.size();
+        List<ResolvedLibrary> sorted = graph.sort();
+        
+        order = new int[sorted.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = graph.indexOf(sorted.get(i));
+        }
+        
+        weights = new long[size];
+        long total = 0;
+        for (int id : order) {
+            weights[id] = durations != null ? durations.getOrDefault(graph.get(id).tag, 0L) : 1;
+            total += weights[id];
+        }
+        totalTime = total;
+        
+        // earliest finish of each library if everything ran in parallel
+        depths = new int[size];
+        finishes = new long[size];
+        previous = new int[size];
+        int last = -1;
+        for (int id : order) {
+            long start = 0;
+            previous[id] = -1;
+            
+            for (int dependency : graph.dependencies(id)) {
+                depths[id] = Math.max(depths[id], depths[dependency] + 1);
+                
+                if (previous[id] == -1 || finishes[dependency] > start) {
+                    start = finishes[dependency];
+                    previous[id] = dependency;
+                }
+            }
+            
+            finishes[id] = start + weights[id];
+            if (last == -1 || finishes[id] > finishes[last]) last = id;
+        }
+        criticalTime = last != -1 ? finishes[last] : 0;
+        
+        // longest chain of dependents after each library
+        long[] tails = new long[size];
+        for (int i = order.length - 1; i >= 0; i--) {
+            int id = order[i];
+            
+            for (int dependent : graph.dependents(id)) {
+                tails[id] = Math.max(tails[id], tails[dependent] + weights[dependent]);
+            }
+        }
+        
+        slacks = new long[size];
+        for (int id : order) {
+            slacks[id] = criticalTime - finishes[id] - tails[id];
+        }
+        
+        critical = new boolean[size];
+        List<ResolvedLibrary> path = new ArrayList<>();
+        for (int id = last; id != -1; id = previous[id]) {
+            critical[id] = true;
+            path.add(graph.get(id));
+        }
+        Collections.reverse(path);
+        criticalPath = Collections.unmodifiableList(path);
+        
+        // transitive dependencies as bit sets, filled in dependency order
+        int words = (size + 63) >>> 6;
+        long[] bits = new long[size * words];
+        closures = new int[size];
+        for (int id : order) {
+            for (int dependency : graph.dependencies(id)) {
+                for (int w = 0; w < words; w++) {
+                    bits[id * words + w] |= bits[dependency * words + w];
+                }
+                bits[id * words + (dependency >>> 6)] |= 1L << dependency;
+            }
+            
+            for (int w = 0; w < words; w++) {
+                closures[id] += Long.bitCount(bits[id * words + w]);
+            }
+        }
+        
+        Map<Integer, Integer> widths = new HashMap<>();
+        int width = 0;
+        for (int id : order) {
+            width = Math.max(width, widths.merge(depths[id], 1, Integer::sum));
+        }
+        maxWidth = width;
+    }
+    
+    /**
+     * Constructs a LibraryGraphReport of the specified graph, weighted by the
+     * {@link LibraryPhase#LOAD} events recorded for each library.
+     *
+     * @param graph the dependency graph to analyze.
+     * @param events the recorded events, for example from {@link ChromeTraceListener#getEvents()}.
+     * @return the report.
+     */
+    public static LibraryGraphReport of(LibraryGraph graph, List<LibraryEvent> events) {
+        Map<String, Long> durations = new HashMap<>();
+        for (LibraryEvent e : events) {
+            if (e.phase == LibraryPhase.LOAD && e.tag != null) durations.merge(e.tag, e.duration, Long::sum);
+        }
+        return new LibraryGraphReport(graph, durations);
+    }
+    
+    /**
+     * Gets the longest chain of dependencies by load time, from the first library to load to the last.
+     *
+     * @return the libraries of the critical path.
+     */
+    public List<ResolvedLibrary> getCriticalPath() {
+        return criticalPath;
+    }
+    
+    /**
+     * Gets the load time of the critical path, the shortest possible startup with unlimited threads.
+     *
+     * @return the time of the critical path in nanoseconds.
+     */
+    public long getCriticalTime() {
+        return criticalTime;
+    }
+    
+    /**
+     * Gets the load time of all libraries together, the startup when loading sequentially.
+     *
+     * @return the total time in nanoseconds.
+     */
+    public long getTotalTime() {
+        return totalTime;
+    }
+    
+    /**
+     * Gets the maximum theoretical parallelism, the total time divided by the time of the critical path.
+     *
+     * @return the average number of libraries that could load at the same time.
+     */
+    public double getParallelism() {
+        return criticalTime > 0 ? (double) totalTime / criticalTime : 0;
+    }
+    
+    /**
+     * Gets the largest number of libraries with the same depth, which can all load at the same time.
+     *
+     * @return the maximum width of the graph.
+     */
+    public int getMaxWidth() {
+        return maxWidth;
+    }
+    
+    /**
+     * Gets the length of the longest chain of dependencies below the library with the specified ID.
+     *
+     * @param id the ID of the library in the graph.
+     * @return the depth of the library, 0 if it doesn't have dependencies.
+     */
+    public int getDepth(int id) {
+        return depths[id];
+    }
+    
+    /**
+     * Gets the number of direct and indirect dependencies of the library with the specified ID.
+     *
+     * @param id the ID of the library in the graph.
+     * @return the size of the transitive closure of the library.
+     */
+    public int getClosure(int id) {
+        return closures[id];
+    }
+    
+    /**
+     * Gets how long the library with the specified ID could be delayed without delaying the startup.
+     *
+     * @param id the ID of the library in the graph.
+     * @return the slack of the library in nanoseconds, 0 on the critical path.
+     */
+    public long getSlack(int id) {
+        return slacks[id];
+    }
+    
+    /**
+     * Writes the graph in the Graphviz DOT format, with edges from each library to its dependencies
+     * and the critical path highlighted.
+     *
+     * @param out the writer to write to.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void writeDot(Writer out) throws IOException {
+        out.write("digraph libraries {\n");
+        out.write("  rankdir=BT;\n");
+        out.write("  node [shape=box];\n");
+        
+        for (int id : order) {
+            String tag = ChromeTraceListener.escape(graph.get(id).tag);
+            
+            out.write("  \"" + tag + "\" [label=\"" + tag + "\\n" + millis(weights[id]) + " ms, depth " + depths[id]
+                    + ", closure " + closures[id] + "\"" + (critical[id] ? ", color=red, penwidth=2" : "") + "];\n");
+        }
+        
+        for (int id : order) {
+            for (int dependency : graph.dependencies(id)) {
+                boolean edge = critical[id] && previous[id] == dependency;
+                
+                out.write("  \"" + ChromeTraceListener.escape(graph.get(id).tag) + "\" -> \"" + ChromeTraceListener.escape(graph.get(dependency).tag) + "\""
+                        + (edge ? " [color=red, penwidth=2]" : "") + ";\n");
+            }
+        }
+        
+        out.write("}\n");
+    }
+    
+    /**
+     * Writes the report as JSON, with the times in milliseconds.
+     *
+     * @param out the writer to write to.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void writeJson(Writer out) throws IOException {
+        out.write("{\n");
+        out.write("\"criticalTime\":" + millis(criticalTime) + ",\n");
+        out.write("\"totalTime\":" + millis(totalTime) + ",\n");
+        out.write("\"parallelism\":" + String.format(Locale.ROOT, "%.2f", getParallelism()) + ",\n");
+        out.write("\"maxWidth\":" + maxWidth + ",\n");
+        
+        out.write("\"criticalPath\":[");
+        for (int i = 0; i < criticalPath.size(); i++) {
+            if (i > 0) out.write(",");
+            out.write("\"" + ChromeTraceListener.escape(criticalPath.get(i).tag) + "\"");
+        }
+        out.write("],\n");
+        
+        out.write("\"libraries\":[");
+        for (int i = 0; i < order.length; i++) {
+            int id = order[i];
+            
+            if (i > 0) out.write(",");
+            out.write("\n{\"tag\":\"" + ChromeTraceListener.escape(graph.get(id).tag) + "\""
+                    + ",\"time\":" + millis(weights[id])
+                    + ",\"depth\":" + depths[id]
+                    + ",\"closure\":" + closures[id]
+                    + ",\"slack\":" + millis(slacks[id])
+                    + ",\"critical\":" + critical[id]
+                    + ",\"dependencies\":[");
+            
+            int[] dependencies = graph.dependencies(id);
+            for (int j = 0; j < dependencies.length; j++) {
+                if (j > 0) out.write(",");
+                out.write("\"" + ChromeTraceListener.escape(graph.get(dependencies[j]).tag) + "\"");
+            }
+            out.write("]}");
+        }
+        out.write("\n]}\n");
+    }
+    
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+}
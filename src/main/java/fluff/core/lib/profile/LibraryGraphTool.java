@@ -0,0 +1,56 @@
+package fluff.core.lib.profile;
+
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import fluff.core.FluffCore;
+import fluff.core.lib.LibraryResolver;
+
+/**
+ * Command line entry point that initializes the libraries and writes the report of their dependency graph,
+ * weighted by the time each library took to load. The libraries are loaded sequentially so their times
+ * don't include waiting on each other, the usual system properties like {@code fluff.plugins} apply.
+ * <b>Usage</b>: java -cp &lt;classpath&gt; fluff.core.lib.profile.LibraryGraphTool [dot|json] [output file]
+ */
+public class LibraryGraphTool {
+    
+    /**
+     * Writes the dependency graph report of the libraries in the requested format,
+     * to the output file or to the standard output. A summary is printed to the standard error.
+     *
+     * @param args the format, dot by default, and the optional output file.
+     * @throws Exception if the libraries fail to load or the report can't be written.
+     */
+    public static void main(String[] args) throws Exception {
+        String format = args.length > 0 ? args[0] : "dot";
+        if (args.length > 2 || !(format.equals("dot") || format.equals("json"))) {
+            System.err.println("Usage: LibraryGraphTool [dot|json] [output file]");
+            System.exit(2);
+        }
+        
+        ChromeTraceListener listener = new ChromeTraceListener();
+        LibraryProfiler.addListener(listener);
+        try {
+            FluffCore.init();
+        } finally {
+            LibraryProfiler.removeListener(listener);
+        }
+        
+        LibraryGraphReport report = LibraryGraphReport.of(LibraryResolver.graph(), listener.getEvents());
+        
+        Writer out = args.length > 1 ? Files.newBufferedWriter(Path.of(args[1])) : new OutputStreamWriter(System.out);
+        try (out) {
+            if (format.equals("dot")) {
+                report.writeDot(out);
+            } else {
+                report.writeJson(out);
+            }
+        }
+        
+        System.err.printf("critical path: %.3f ms over %d libraries, total: %.3f ms, parallelism: %.2f, max width: %d%n",
+                report.getCriticalTime() / 1e6, report.getCriticalPath().size(), report.getTotalTime() / 1e6,
+                report.getParallelism(), report.getMaxWidth());
+    }
+}
@@ -0,0 +1,26 @@
+package fluff.core.lib.profile;
+
+/**
+ * Listener notified when a phase of resolving or loading a library finishes,
+ * and when a phase fails without failing the libraries.
+ */
+@FunctionalInterface
+public interface LibraryListener {
+    
+    /**
+     * Called when a phase finishes. May be called from multiple threads at once.
+     *
+     * @param event the timed phase.
+     */
+    void onEvent(LibraryEvent event);
+    
+    /**
+     * Called when a phase fails but the libraries are still usable, so the failure isn't thrown.
+     * May be called from multiple threads at once.
+     *
+     * @param phase the phase that failed.
+     * @param tag the tag of the library, or null if the phase isn't specific to a library.
+     * @param error the failure.
+     */
+    default void onFailure(LibraryPhase phase, String tag, Throwable error) {}
+}
@@ -0,0 +1,53 @@
+package fluff.core.lib.profile;
+
+/**
+ * Represents a phase of resolving or loading libraries that can be timed.
+ */
+public enum LibraryPhase {
+    
+    /**
+     * Resolving and sorting a batch of library information.
+     */
+    RESOLVE,
+    
+    /**
+     * Opening, reading and creating a library from its information.
+     */
+    READ,
+    
+    /**
+     * Parsing the properties of a library information.
+     */
+    PARSE,
+    
+    /**
+     * Preparing a library on a background thread before it's loaded, like loading its classes.
+     */
+    PREFETCH,
+    
+    /**
+     * Loading a library through its manager.
+     */
+    LOAD,
+    
+    /**
+     * Loading the main class of a library.
+     */
+    CLASS_LOAD,
+    
+    /**
+     * Executing the main methods of a library.
+     */
+    MAIN,
+    
+    /**
+     * Unloading a library through its manager, including its shutdown hooks.
+     */
+    UNLOAD,
+    
+    /**
+     * Keeping the class data archive in sync with the loaded libraries.
+     */
+    ARCHIVE,
+    ;
+}
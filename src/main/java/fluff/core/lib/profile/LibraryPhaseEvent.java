@@ -0,0 +1,47 @@
+package fluff.core.lib.profile;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event emitted when a phase of resolving or loading a library finishes.
+ */
+@Name("fluff.LibraryPhase")
+@Label("Library Phase")
+@Category("Fluff")
+@Description("Timed phase of resolving or loading a Fluff library")
+@StackTrace(false)
+class LibraryPhaseEvent extends Event {
+    
+    @Label("Phase")
+    String phase;
+    
+    @Label("Library")
+    String tag;
+    
+    @Label("Phase Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    long phaseDuration;
+    
+    /**
+     * Emits an event for a finished phase if it's enabled in a running recording.
+     * 
+     * @param phase the phase that finished
+     * @param tag the tag of the library, or null if the phase isn't specific to a library
+     * @param duration the duration of the phase in nanoseconds
+     */
+    static void emit(LibraryPhase phase, String tag, long duration) {
+        LibraryPhaseEvent event = new LibraryPhaseEvent();
+        if (!event.shouldCommit()) return;
+        
+        event.phase = phase.name();
+        event.tag = tag;
+        event.phaseDuration = duration;
+        event.commit();
+    }
+}
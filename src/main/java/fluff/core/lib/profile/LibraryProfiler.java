@@ -0,0 +1,85 @@
+package fluff.core.lib.profile;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import jdk.jfr.FlightRecorder;
+
+/**
+ * Records the timings of resolving and loading libraries, notifying the registered
+ * {@link LibraryListener}s and emitting {@code fluff.LibraryPhase} JFR events.
+ * Failures that don't fail the libraries are reported to the listeners too.
+ */
+public class LibraryProfiler {
+    
+    private static final List<LibraryListener> LISTENERS = new CopyOnWriteArrayList<>();
+    private static final boolean JFR = isJFRPresent();
+    
+    /**
+     * Registers a listener to be notified of every timed phase.
+     *
+     * @param listener the listener to register.
+     */
+    public static void addListener(LibraryListener listener) {
+        LISTENERS.add(listener);
+    }
+    
+    /**
+     * Unregisters a listener.
+     *
+     * @param listener the listener to unregister.
+     */
+    public static void removeListener(LibraryListener listener) {
+        LISTENERS.remove(listener);
+    }
+    
+    /**
+     * Gets the start time of a phase.
+     *
+     * @return the current value of {@link System#nanoTime()}.
+     */
+    public static long start() {
+        return System.nanoTime();
+    }
+    
+    /**
+     * Records a phase that started at the specified time and finished now.
+     *
+     * @param phase the phase that finished.
+     * @param tag the tag of the library, or null if the phase isn't specific to a library.
+     * @param start the start time of the phase, as returned by {@link #start()}.
+     */
+    public static void record(LibraryPhase phase, String tag, long start) {
+        long duration = System.nanoTime() - start;
+        
+        if (JFR && FlightRecorder.isInitialized()) LibraryPhaseEvent.emit(phase, tag, duration);
+        
+        if (LISTENERS.isEmpty()) return;
+        
+        LibraryEvent event = new LibraryEvent(phase, tag, start, duration);
+        for (LibraryListener listener : LISTENERS) {
+            listener.onEvent(event);
+        }
+    }
+    
+    /**
+     * Reports a phase that failed without failing the libraries.
+     *
+     * @param phase the phase that failed.
+     * @param tag the tag of the library, or null if the phase isn't specific to a library.
+     * @param error the failure.
+     */
+    public static void fail(LibraryPhase phase, String tag, Throwable error) {
+        for (LibraryListener listener : LISTENERS) {
+            listener.onFailure(phase, tag, error);
+        }
+    }
+    
+    private static boolean isJFRPresent() {
+        try {
+            return ModuleLayer.boot().findModule("jdk.jfr").isPresent();
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+}
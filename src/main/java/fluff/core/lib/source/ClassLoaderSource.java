@@ -0,0 +1,119 @@
+package fluff.core.lib.source;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import fluff.core.lib.v1.LibraryIndexProcessor;
+
+/**
+ * Finds the library information on the classpath of a class loader.
+ * Precompiled library indexes are preferred over the library information next to them.
+ */
+public class ClassLoaderSource implements ILibrarySource {
+    
+    /**
+     * The name of the library information resource.
+     */
+    public static final String INFO = "fluff_lib.info";
+    
+    private final ClassLoader loader;
+    
+    /**
+     * Constructs a new ClassLoaderSource searching the specified class loader.
+     *
+     * @param loader the class loader to search the library information in.
+     */
+    public ClassLoaderSource(ClassLoader loader) {
+        this.loader = loader;
+    }
+    
+    @Override
+    public List<URL> find() throws IOException {
+        Indexes indexes = new Indexes(loader.getResources(LibraryIndexProcessor.INDEX));
+        
+        List<URL> infos = new ArrayList<>();
+        for (URL info : Collections.list(loader.getResources(INFO))) {
+            infos.add(indexes.find(info));
+        }
+        return infos;
+    }
+    
+    /**
+     * Hands over each library information as the class loader enumerates it, so the first
+     * ones are read while the rest of the classpath is searched.
+     * The indexes are enumerated alongside the information, so neither search waits for the other.
+     */
+    @Override
+    public void find(Consumer<URL> consumer) throws IOException {
+        Indexes indexes = new Indexes(loader.getResources(LibraryIndexProcessor.INDEX));
+        
+        Enumeration<URL> infos = loader.getResources(INFO);
+        while (infos.hasMoreElements()) {
+            consumer.accept(indexes.find(infos.nextElement()));
+        }
+    }
+    
+    @Override
+    public boolean isClassLoaderKnown() {
+        return true;
+    }
+    
+    /**
+     * Gets the URL of the directory the specified resource is in.
+     *
+     * @param url the URL of the resource.
+     * @param name the name of the resource.
+     * @return the URL without the resource name.
+     */
+    private static String base(URL url, String name) {
+        String form = url.toExternalForm();
+        
+        return form.endsWith(name) ? form.substring(0, form.length() - name.length()) : form;
+    }
+    
+    /**
+     * Matches library information to the precompiled indexes next to them, enumerating the indexes
+     * only as far as needed. The class loader searches both resources in the same order of its classpath,
+     * so the index of a library information is the next one, unless that library doesn't have one.
+     * Indexes found in a different order are still matched, as long as they were enumerated first.
+     */
+    private static class Indexes {
+        
+        private final Enumeration<URL> urls;
+        private final Map<String, URL> found = new HashMap<>();
+        
+        private Indexes(Enumeration<URL> urls) {
+            this.urls = urls;
+        }
+        
+        /**
+         * Finds the precompiled library index next to the specified library information.
+         *
+         * @param info the URL of the library information.
+         * @return the URL of the index if present, or the information URL otherwise.
+         */
+        private URL find(URL info) {
+            String base = base(info, INFO);
+            
+            URL index = found.remove(base);
+            if (index != null) return index;
+            
+            if (urls.hasMoreElements()) {
+                index = urls.nextElement();
+                
+                String next = base(index, LibraryIndexProcessor.INDEX);
+                if (next.equals(base)) return index;
+                
+                found.putIfAbsent(next, index); // the index of a later library information
+            }
+            return info;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package fluff.core.lib.source;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.FileVisitOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+import fluff.core.lib.v1.LibraryIndexProcessor;
+
+/**
+ * Finds libraries in a plugin directory, as jar files or exploded jar directories containing
+ * the library information at their root. The directory is searched recursively, and every jar
+ * file in it is added to the class loader of the source, with or without library information.
+ * When the directory is searched again, the jars and directories that were added since the
+ * last search get a new class loader, child of the specified parent.
+ */
+public class DirectorySource implements ILibrarySource {
+    
+    private final Path directory;
+    private volatile List<Path> roots = List.of();
+    private final Set<Path> added = new HashSet<>();
+    
+    /**
+     * Constructs a new DirectorySource searching the specified directory.
+     *
+     * @param directory the plugin directory.
+     */
+    public DirectorySource(Path directory) {
+        this.directory = directory;
+    }
+    
+    @Override
+    public List<URL> find() throws IOException {
+        if (!Files.isDirectory(directory)) return List.of();
+        
+        List<Path> roots = new ArrayList<>();
+        try (Stream<Path> walk = Files.walk(directory, FileVisitOption.FOLLOW_LINKS)) {
+            walk.forEach(path -> {
+                String name = path.getFileName().toString();
+                
+                if (name.equals(ClassLoaderSource.INFO)) roots.add(path.getParent());
+                else if (name.endsWith(".jar") && Files.isRegularFile(path)) roots.add(path);
+            });
+        }
+        this.roots = roots;
+        
+        List<URL> infos = new ArrayList<>();
+        for (URL url : LibrarySources.map(roots, DirectorySource::info)) {
+            if (url != null) infos.add(url);
+        }
+        return infos;
+    }
+    
+    @Override
+    public synchronized ClassLoader getClassLoader(ClassLoader parent) {
+        List<URL> urls = new ArrayList<>();
+        for (Path root : roots) {
+            if (!added.add(root)) continue;
+            
+            try {
+                urls.add(root.toUri().toURL());
+            } catch (IOException e) {
+                // not a valid URL, can't be loaded from
+            }
+        }
+        
+        if (urls.isEmpty()) return parent;
+        
+        return new URLClassLoader("fluff:" + directory.getFileName(), urls.toArray(new URL[0]), parent);
+    }
+    
+    private static URL info(Path root) throws IOException {
+        if (Files.isDirectory(root)) {
+            Path index = root.resolve(LibraryIndexProcessor.INDEX);
+            
+            return (Files.isRegularFile(index) ? index : root.resolve(ClassLoaderSource.INFO)).toUri().toURL();
+        }
+        
+        try (JarFile jar = new JarFile(root.toFile())) {
+            String name;
+            if (jar.getEntry(LibraryIndexProcessor.INDEX) != null) name = LibraryIndexProcessor.INDEX;
+            else if (jar.getEntry(ClassLoaderSource.INFO) != null) name = ClassLoaderSource.INFO;
+            else return null; // a plain dependency of the plugins
+            
+            return new URL("jar:" + root.toUri() + "!/" + name);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package fluff.core.lib.source;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Represents a source of library information, such as the classpath or a plugin directory.
+ * Sources can be added through {@link fluff.core.FluffCore#addSource(ILibrarySource)}
+ * or provided as a {@link java.util.ServiceLoader} service.
+ */
+public interface ILibrarySource {
+    
+    /**
+     * Finds the library information URLs of this source.
+     *
+     * @return the list of library information URLs.
+     * @throws IOException if an I/O error occurs.
+     */
+    List<URL> find() throws IOException;
+    
+    /**
+     * Finds the library information URLs of this source, handing each one to the consumer
+     * as soon as it's found, so it can be read while the rest are searched.
+     * The default implementation hands over the URLs of {@link #find()} once they're all found.
+     *
+     * @param consumer the consumer of the library information URLs, called on the calling thread.
+     * @throws IOException if an I/O error occurs.
+     */
+    default void find(Consumer<URL> consumer) throws IOException {
+        find().forEach(consumer);
+    }
+    
+    /**
+     * Checks if the class loader of this source doesn't depend on what it finds, so
+     * {@link #getClassLoader(ClassLoader)} can be called before it's searched and its libraries
+     * can load while it's still being searched. The default implementation returns false.
+     *
+     * @return true if the class loader is known before searching, false otherwise.
+     */
+    default boolean isClassLoaderKnown() {
+        return false;
+    }
+    
+    /**
+     * Gets the class loader to load the libraries of this source with.
+     * Called after {@link #find()}, unless {@link #isClassLoaderKnown()} is true. The default implementation returns the parent.
+     *
+     * @param parent the class loader of the previous sources.
+     * @return the class loader of this source.
+     */
+    default ClassLoader getClassLoader(ClassLoader parent) {
+        return parent;
+    }
+}
@@ -0,0 +1,163 @@
+package fluff.core.lib.source;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import fluff.core.lib.info.LibraryInfoBuffer;
+
+/**
+ * Utility class for finding and reading library information from several sources concurrently.
+ * The I/O runs on virtual threads when the runtime supports them, otherwise on a small pool of daemon threads.
+ */
+public class LibrarySources {
+    
+    /**
+     * Lists with fewer entries than this are handled on the calling thread.
+     */
+    private static final int CONCURRENT_THRESHOLD = 4;
+    
+    /**
+     * Finds the library information URLs of all the specified sources concurrently.
+     *
+     * @param sources the sources to search.
+     * @return the library information URLs, in the order of the sources.
+     * @throws IOException if an I/O error occurs.
+     */
+    public static List<URL> find(List<ILibrarySource> sources) throws IOException {
+        List<URL> infos = new ArrayList<>();
+        for (List<URL> list : map(sources, ILibrarySource::find)) {
+            infos.addAll(list);
+        }
+        return infos;
+    }
+    
+    /**
+     * Reads the content of the specified URLs concurrently, unless they are all local.
+     *
+     * @param infos the URLs to read.
+     * @return the content of each URL, in the same order.
+     * @throws IOException if an I/O error occurs.
+     */
+    public static List<ByteBuffer> read(List<URL> infos) throws IOException {
+        boolean local = true;
+        for (URL url : infos) {
+            if (!isLocal(url)) {
+                local = false;
+                break;
+            }
+        }
+        
+        if (local) {
+            List<ByteBuffer> buffers = new ArrayList<>(infos.size());
+            for (URL url : infos) {
+                buffers.add(LibraryInfoBuffer.read(url));
+            }
+            return buffers;
+        }
+        
+        return map(infos, LibraryInfoBuffer::read);
+    }
+    
+    /**
+     * Applies the function to every element of the list concurrently.
+     * If several calls fail, the exception of the first failed element is thrown.
+     *
+     * @param <T> the type of the elements.
+     * @param <R> the type of the results.
+     * @param list the elements.
+     * @param function the function to apply.
+     * @return the results, in the order of the elements.
+     * @throws IOException if the function throws for any element.
+     */
+    static <T, R> List<R> map(List<T> list, IOFunction<T, R> function) throws IOException {
+        List<R> results = new ArrayList<>(list.size());
+        
+        if (list.size() < CONCURRENT_THRESHOLD) {
+            for (T t : list) {
+                results.add(function.apply(t));
+            }
+            return results;
+        }
+        
+        List<Future<R>> futures = new ArrayList<>(list.size());
+        for (T t : list) {
+            futures.add(IOExecutor.INSTANCE.submit(() -> {
+                try {
+                    return function.apply(t);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        }
+        
+        Throwable failure = null;
+        for (Future<R> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                if (failure == null) failure = e.getCause();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                
+                for (Future<R> f : futures) {
+                    f.cancel(true);
+                }
+                throw new IOException(e);
+            }
+        }
+        if (failure instanceof UncheckedIOException e) throw e.getCause();
+        if (failure instanceof RuntimeException e) throw e;
+        if (failure instanceof Error e) throw e;
+        if (failure != null) throw new IOException(failure);
+        
+        return results;
+    }
+    
+    private static boolean isLocal(URL url) {
+        return url.getProtocol().equals("file") || url.getProtocol().equals(MemorySource.PROTOCOL);
+    }
+    
+    /**
+     * A function that can throw an {@link IOException}.
+     */
+    @FunctionalInterface
+    interface IOFunction<T, R> {
+        
+        R apply(T t) throws IOException;
+    }
+    
+    /**
+     * Holds the I/O executor, so it's only created when it's used.
+     */
+    private static class IOExecutor {
+        
+        private static final ExecutorService INSTANCE = create();
+        
+        private static ExecutorService create() {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                // virtual threads aren't available before Java 21
+            }
+            
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(32, 32, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                Thread thread = new Thread(r, "fluff-io");
+                thread.setDaemon(true);
+                return thread;
+            });
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
+}
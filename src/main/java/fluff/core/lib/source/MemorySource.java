@@ -0,0 +1,94 @@
+package fluff.core.lib.source;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import fluff.core.lib.info.LibraryInfoBuffer;
+
+/**
+ * Holds library information in memory, for libraries generated at runtime or embedded in another file.
+ * The classes of the libraries have to be available to the class loader of the previous sources.
+ */
+public class MemorySource implements ILibrarySource {
+    
+    /**
+     * The protocol of the URLs of the in-memory library information.
+     */
+    public static final String PROTOCOL = "memory";
+    
+    private final Map<String, byte[]> infos = new LinkedHashMap<>();
+    private final URLStreamHandler handler = new URLStreamHandler() {
+        
+        @Override
+        protected URLConnection openConnection(URL u) {
+            return new URLConnection(u) {
+                
+                @Override
+                public void connect() {}
+                
+                @Override
+                public InputStream getInputStream() throws IOException {
+                    byte[] info;
+                    synchronized (infos) {
+                        info = infos.get(u.getPath());
+                    }
+                    if (info == null) throw new FileNotFoundException(u.toString());
+                    
+                    return new ByteArrayInputStream(info);
+                }
+            };
+        }
+    };
+    
+    /**
+     * Adds library information to this source, replacing the information with the same name.
+     * The information is encoded with the charset it's read with, {@link LibraryInfoBuffer#CHARSET}.
+     *
+     * @param name the unique name of the information.
+     * @param info the library information, starting with the library manager ID.
+     * @return this source.
+     */
+    public MemorySource add(String name, String info) {
+        return add(name, info.getBytes(LibraryInfoBuffer.CHARSET));
+    }
+    
+    /**
+     * Adds library information to this source, replacing the information with the same name.
+     *
+     * @param name the unique name of the information.
+     * @param info the library information, starting with the library manager ID.
+     * @return this source.
+     */
+    public MemorySource add(String name, byte[] info) {
+        synchronized (infos) {
+            infos.put("/" + name, info.clone());
+        }
+        return this;
+    }
+    
+    @Override
+    public List<URL> find() throws MalformedURLException {
+        List<URL> urls = new ArrayList<>();
+        synchronized (infos) {
+            for (String path : infos.keySet()) {
+                urls.add(new URL(PROTOCOL, null, -1, path, handler));
+            }
+        }
+        return urls;
+    }
+    
+    @Override
+    public boolean isClassLoaderKnown() {
+        return true;
+    }
+}
@@ -0,0 +1,154 @@
+package fluff.core.lib.v1;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-class cache of the {@link LibraryMain} entry points and {@link LibraryShutdown} hooks of a library main class.
+ * Entry points are invoked through method handles, falling back to reflection
+ * when the class can't be accessed through a private lookup.
+ */
+class LibraryEntryPoints {
+    
+    private static final ClassValue<LibraryEntryPoints> CACHE = new ClassValue<>() {
+        
+        @Override
+        protected LibraryEntryPoints computeValue(Class<?> type) {
+            return new LibraryEntryPoints(type);
+        }
+    };
+    
+    private final Class<?> clazz;
+    private final Map<String, EntryPoint> named = new ConcurrentHashMap<>();
+    private volatile List<EntryPoint> annotated;
+    private volatile List<EntryPoint> shutdown;
+    
+    private LibraryEntryPoints(Class<?> clazz) {
+        this.clazz = clazz;
+    }
+    
+    /**
+     * Gets the cached entry points of the specified class.
+     *
+     * @param clazz the library main class.
+     * @return the entry points of the class.
+     */
+    static LibraryEntryPoints of(Class<?> clazz) {
+        return CACHE.get(clazz);
+    }
+    
+    /**
+     * Gets the static methods annotated with {@link LibraryMain}, discovering them on the first call.
+     *
+     * @return the annotated entry points.
+     * @throws ReflectiveOperationException if an entry point can't be accessed.
+     */
+    List<EntryPoint> annotated() throws ReflectiveOperationException {
+        List<EntryPoint> list = annotated;
+        if (list != null) return list;
+        
+        annotated = list = find(LibraryMain.class);
+        return list;
+    }
+    
+    /**
+     * Gets the static methods annotated with {@link LibraryShutdown}, discovering them on the first call.
+     *
+     * @return the shutdown hooks.
+     * @throws ReflectiveOperationException if a hook can't be accessed.
+     */
+    List<EntryPoint> shutdown() throws ReflectiveOperationException {
+        List<EntryPoint> list = shutdown;
+        if (list != null) return list;
+        
+        shutdown = list = find(LibraryShutdown.class);
+        return list;
+    }
+    
+    private List<EntryPoint> find(Class<? extends Annotation> annotation) throws ReflectiveOperationException {
+        List<EntryPoint> list = new ArrayList<>();
+        for (Method m : clazz.getDeclaredMethods()) {
+            if (!m.isAnnotationPresent(annotation)) continue;
+            if (!Modifier.isStatic(m.getModifiers())) continue;
+            
+            list.add(entryPoint(m));
+        }
+        return List.copyOf(list);
+    }
+    
+    /**
+     * Gets the static methods with the specified names, looking each of them up on the first call.
+     *
+     * @param names the names of the methods.
+     * @return the named entry points.
+     * @throws ReflectiveOperationException if a method doesn't exist or can't be accessed.
+     */
+    List<EntryPoint> named(Collection<String> names) throws ReflectiveOperationException {
+        List<EntryPoint> list = new ArrayList<>(names.size());
+        
+        for (String name : names) {
+            EntryPoint e = named.get(name);
+            
+            if (e == null) {
+                Method m = clazz.getDeclaredMethod(name);
+                e = Modifier.isStatic(m.getModifiers()) ? entryPoint(m) : EntryPoint.NONE;
+                
+                named.put(name, e);
+            }
+            
+            if (e != EntryPoint.NONE) list.add(e);
+        }
+        
+        return list;
+    }
+    
+    private static EntryPoint entryPoint(Method m) throws ReflectiveOperationException {
+        try {
+            MethodHandle handle = MethodHandles.privateLookupIn(m.getDeclaringClass(), MethodHandles.lookup())
+                    .unreflect(m)
+                    .asType(MethodType.methodType(Object.class));
+            
+            return () -> handle.invokeExact();
+        } catch (IllegalAccessException e) {
+            m.setAccessible(true);
+            
+            return () -> {
+                try {
+                    return m.invoke(null);
+                } catch (InvocationTargetException ex) {
+                    throw ex.getCause();
+                }
+            };
+        }
+    }
+    
+    /**
+     * A cached library entry point.
+     */
+    @FunctionalInterface
+    interface EntryPoint {
+        
+        /**
+         * Placeholder for methods that aren't entry points.
+         */
+        EntryPoint NONE = () -> null;
+        
+        /**
+         * Invokes the entry point.
+         *
+         * @return the value returned by the entry point, or null if it doesn't return anything.
+         * @throws Throwable if the entry point throws.
+         */
+        Object invoke() throws Throwable;
+    }
+}
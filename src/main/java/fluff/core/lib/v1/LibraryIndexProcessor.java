@@ -0,0 +1,104 @@
+package fluff.core.lib.v1;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import fluff.core.lib.LibraryException;
+import fluff.core.lib.info.LibraryInfoBuffer;
+import fluff.core.lib.info.LibraryInfoReader;
+
+/**
+ * Annotation processor that generates a precompiled library index at build time.
+ * The index is a normalized copy of the {@code fluff_lib.info} file given by the
+ * {@code fluff.info} option, with the {@link LibraryMain} methods of the main class
+ * listed in the {@code main} property, so they don't have to be discovered at runtime.
+ */
+@SupportedAnnotationTypes("fluff.core.lib.v1.LibraryMain")
+@SupportedOptions(LibraryIndexProcessor.OPTION)
+public class LibraryIndexProcessor extends AbstractProcessor {
+    
+    /**
+     * The option pointing to the {@code fluff_lib.info} file of the compiled library.
+     */
+    public static final String OPTION = "fluff.info";
+    
+    /**
+     * The name of the generated index resource.
+     */
+    public static final String INDEX = "fluff_lib.index";
+    
+    private final Map<String, Set<String>> mains = new HashMap<>();
+    
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+    
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element e : roundEnv.getElementsAnnotatedWith(LibraryMain.class)) {
+            if (e.getKind() != ElementKind.METHOD) continue;
+            if (!e.getModifiers().contains(Modifier.STATIC)) continue;
+            
+            TypeElement type = (TypeElement) e.getEnclosingElement();
+            String clazz = processingEnv.getElementUtils().getBinaryName(type).toString();
+            
+            mains.computeIfAbsent(clazz, k -> new TreeSet<>()).add(e.getSimpleName().toString());
+        }
+        
+        if (roundEnv.processingOver()) writeIndex();
+        
+        return false;
+    }
+    
+    private void writeIndex() {
+        String info = processingEnv.getOptions().get(OPTION);
+        if (info == null) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "Option " + OPTION + " not set, skipping " + INDEX);
+            return;
+        }
+        
+        try (BufferedReader br = Files.newBufferedReader(Path.of(info))) {
+            String id = br.readLine();
+            LibraryInfoReader r = new LibraryInfoReader(br);
+            
+            FileObject index = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", INDEX);
+            try (Writer w = new OutputStreamWriter(index.openOutputStream(), LibraryInfoBuffer.CHARSET)) {
+                w.write(id + "\n");
+                w.write("# Generated from " + Path.of(info).getFileName() + ", do not edit\n");
+                
+                for (String key : new TreeSet<>(r.getKeys())) {
+                    if (key.equals("main")) continue;
+                    
+                    w.write(key + " " + r.optional(key).String() + "\n");
+                }
+                
+                Set<String> methods = mains.get(r.optional("class").String());
+                if (methods != null) w.write("main " + String.join(", ", methods) + "\n");
+            }
+        } catch (IOException | LibraryException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Couldn't generate " + INDEX + ": " + e.getMessage());
+        }
+    }
+}
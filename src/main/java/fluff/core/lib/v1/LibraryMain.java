@@ -9,6 +9,9 @@ import java.lang.annotation.Target;
  * Indicates that the annotated method should be called when loading a library.
  * This annotation is used to mark the main method(s) of a library that needs to be executed
  * during the library's initialization process.
+ * If the method returns a {@link java.util.concurrent.CompletionStage CompletionStage}, such as a
+ * {@link java.util.concurrent.CompletableFuture CompletableFuture}, the library is only considered
+ * loaded once it completes, so slow warmup can run in the background without blocking independent libraries.
  */
 @Target(ElementType.METHOD)
 @Retention(RetentionPolicy.RUNTIME)
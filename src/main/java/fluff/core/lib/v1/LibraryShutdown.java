@@ -0,0 +1,17 @@
+package fluff.core.lib.v1;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Indicates that the annotated method should be called when unloading a library.
+ * This annotation is used to mark the static method(s) of the library main class that release
+ * what the {@link LibraryMain} methods acquired, such as threads, files or sockets.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface LibraryShutdown {
+    
+}
@@ -1,12 +1,13 @@
 package fluff.core.lib.v1;
 
 import java.util.HashSet;
-import java.util.Objects;
+import java.util.List;
 import java.util.Set;
 
 import fluff.core.lib.ILibrary;
 import fluff.core.lib.LibraryException;
 import fluff.core.lib.info.LibraryInfoReader;
+import fluff.core.lib.info.LibraryInfoType;
 
 /**
  * Represents a version 1 library implementation of the the {@link ILibrary} interface.
@@ -18,6 +19,8 @@ public class V1Library implements ILibrary {
     private final Set<String> dependencies;
     private final String url;
     private final String mainClass;
+    private final Set<String> mainMethods;
+    private final List<String> preloadClasses;
     
     /**
      * Constructs a V1Library object using the information provided by the {@link LibraryInfoReader}.
@@ -32,25 +35,22 @@ public class V1Library implements ILibrary {
         id = r.required("id", "Property missing: id")
                  .String();
         
-        dependencies = r.optional("depends")
-                        .transform(Set.class)
-                        .If(Objects::nonNull, v -> {
-                            Set<String> set = new HashSet<>();
-                            for (String tag : v.split(",")) {
-                                tag = tag.trim();
-                                set.add(tag);
-                            }
-                            return set;
-                        })
-                        .Else(v -> new HashSet<>())
-                        .Result();
-        if (!author.equals("muscaa") || !id.equals("fluff-core")) dependencies.add("muscaa/fluff-core");
+        Set<String> depends = new HashSet<>(r.optional("depends")
+                        .Set());
+        if (!author.equals("muscaa") || !id.equals("fluff-core")) depends.add("muscaa/fluff-core");
+        dependencies = Set.copyOf(depends);
         
         url = r.optional("url")
                     .String();
         
         mainClass = r.optional("class")
                         .String();
+        
+        mainMethods = r.optional("main")
+                        .as(LibraryInfoType.STRING_SET);
+        
+        preloadClasses = r.optional("preload")
+                            .as(LibraryInfoType.STRING_LIST, List.of());
     }
     
     @Override
@@ -65,7 +65,7 @@ public class V1Library implements ILibrary {
     
     @Override
     public Set<String> getDependencies() {
-        return Set.copyOf(dependencies);
+        return dependencies;
     }
     
     @Override
@@ -77,4 +77,24 @@ public class V1Library implements ILibrary {
     public String getMainClass() {
         return mainClass;
     }
+    
+    /**
+     * Gets the names of the {@link LibraryMain} methods of the main class, as listed
+     * in a precompiled library index.
+     * 
+     * @return the names of the main methods, or null if they have to be discovered
+     */
+    public Set<String> getMainMethods() {
+        return mainMethods;
+    }
+    
+    /**
+     * Gets the names of the classes to load in the background as soon as the library is resolved,
+     * besides the main class, so they're already loaded when the library is.
+     * 
+     * @return the names of the classes to preload
+     */
+    public List<String> getPreloadClasses() {
+        return preloadClasses;
+    }
 }
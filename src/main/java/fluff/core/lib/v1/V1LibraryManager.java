@@ -1,12 +1,23 @@
 package fluff.core.lib.v1;
 
 import java.io.BufferedReader;
-import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
 
 import fluff.core.lib.ILibraryManager;
 import fluff.core.lib.LibraryException;
+import fluff.core.lib.info.LibraryInfoBuffer;
 import fluff.core.lib.info.LibraryInfoReader;
+import fluff.core.lib.info.LibraryInfoSchema;
+import fluff.core.lib.info.LibraryInfoType;
+import fluff.core.lib.profile.LibraryPhase;
+import fluff.core.lib.profile.LibraryProfiler;
+import fluff.core.lib.v1.LibraryEntryPoints.EntryPoint;
 
 /**
  * Implements {@link ILibraryManager} for managing v1 libraries.
@@ -15,31 +26,155 @@ public class V1LibraryManager implements ILibraryManager<V1Library> {
     
     public static final String ID = "v1";
     
+    /**
+     * The properties of the v1 library information.
+     */
+    public static final LibraryInfoSchema SCHEMA = new LibraryInfoSchema()
+            .required("author", LibraryInfoType.STRING)
+            .required("id", LibraryInfoType.STRING)
+            .optional("depends", LibraryInfoType.STRING_SET)
+            .optional("url", LibraryInfoType.STRING)
+            .optional("class", LibraryInfoType.STRING)
+            .optional("main", LibraryInfoType.STRING_SET)
+            .optional("preload", LibraryInfoType.STRING_LIST);
+    
     @Override
     public V1Library create(BufferedReader reader) throws LibraryException {
-        return new V1Library(new LibraryInfoReader(reader));
+        long start = LibraryProfiler.start();
+        
+        V1Library library = new V1Library(new LibraryInfoReader(reader));
+        
+        LibraryProfiler.record(LibraryPhase.PARSE, getTag(library), start);
+        
+        return library;
+    }
+    
+    @Override
+    public V1Library create(ByteBuffer info) throws LibraryException {
+        long start = LibraryProfiler.start();
+        
+        V1Library library = new V1Library(new LibraryInfoBuffer(info));
+        
+        LibraryProfiler.record(LibraryPhase.PARSE, getTag(library), start);
+        
+        return library;
+    }
+    
+    /**
+     * Loads the main class and the preload classes of the library without initializing them,
+     * and looks up the entry points of the main class, so loading the library only has to invoke them.
+     */
+    @Override
+    public void prefetch(ClassLoader loader, V1Library library) {
+        String mainClass = library.getMainClass();
+        if (mainClass != null && !mainClass.equals("fluff.core.FluffCore")) {
+            try {
+                LibraryEntryPoints entryPoints = LibraryEntryPoints.of(Class.forName(mainClass, false, loader));
+                
+                if (library.getMainMethods() != null) {
+                    entryPoints.named(library.getMainMethods());
+                } else {
+                    entryPoints.annotated();
+                }
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // reported when the library is loaded
+            }
+        }
+        
+        for (String name : library.getPreloadClasses()) {
+            try {
+                Class.forName(name, false, loader);
+            } catch (ClassNotFoundException | LinkageError e) {
+                // only a hint, the class may never be used
+            }
+        }
     }
     
+    /**
+     * Loads the library, waiting for the futures returned by its {@link LibraryMain} methods.
+     */
     @Override
     public void load(ClassLoader loader, V1Library library) throws LibraryException {
+        try {
+            loadAsync(loader, library).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof LibraryException cause) throw cause;
+            throw new LibraryException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LibraryException(e);
+        }
+    }
+    
+    /**
+     * Invokes the {@link LibraryMain} methods of the library one after the other.
+     * Methods returning a {@link CompletionStage} keep running in the background,
+     * and the library is loaded once all of them complete.
+     */
+    @Override
+    public CompletableFuture<?> loadAsync(ClassLoader loader, V1Library library) throws LibraryException {
+        if (library.getMainClass() == null) return CompletableFuture.completedFuture(null);
+        if (library.getMainClass().equals("fluff.core.FluffCore")) return CompletableFuture.completedFuture(null);
+        
+        try {
+            long start = LibraryProfiler.start();
+            
+            Class<?> clazz = loader.loadClass(library.getMainClass());
+            
+            LibraryProfiler.record(LibraryPhase.CLASS_LOAD, getTag(library), start);
+            
+            long main = LibraryProfiler.start();
+            
+            LibraryEntryPoints entryPoints = LibraryEntryPoints.of(clazz);
+            
+            List<EntryPoint> list = library.getMainMethods() != null
+                    ? entryPoints.named(library.getMainMethods())
+                    : entryPoints.annotated();
+            
+            List<CompletableFuture<?>> futures = new ArrayList<>();
+            for (EntryPoint e : list) {
+                if (e.invoke() instanceof CompletionStage<?> stage) futures.add(stage.toCompletableFuture());
+            }
+            
+            if (futures.isEmpty()) {
+                LibraryProfiler.record(LibraryPhase.MAIN, getTag(library), main);
+                
+                return CompletableFuture.completedFuture(null);
+            }
+            
+            return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                    .handle((v, e) -> {
+                        if (e != null) throw new CompletionException(new LibraryException(e instanceof CompletionException ? e.getCause() : e));
+                        
+                        LibraryProfiler.record(LibraryPhase.MAIN, getTag(library), main);
+                        return null;
+                    });
+        } catch (Throwable e) {
+            throw new LibraryException(e);
+        }
+    }
+    
+    @Override
+    public void unload(ClassLoader loader, V1Library library) throws LibraryException {
         if (library.getMainClass() == null) return;
         if (library.getMainClass().equals("fluff.core.FluffCore")) return;
         
         try {
             Class<?> clazz = loader.loadClass(library.getMainClass());
             
-            for (Method m : clazz.getDeclaredMethods()) {
-                if (!m.isAnnotationPresent(LibraryMain.class)) continue;
-                if (!Modifier.isStatic(m.getModifiers())) continue;
-                
-                m.setAccessible(true);
-                m.invoke(null);
+            for (EntryPoint e : LibraryEntryPoints.of(clazz).shutdown()) {
+                e.invoke();
             }
-        } catch (Exception e) {
+        } catch (Throwable e) {
             throw new LibraryException(e);
         }
     }
     
+    @Override
+    public LibraryInfoSchema getSchema() {
+        return SCHEMA;
+    }
+    
     @Override
     public String getTag(V1Library lib) {
         return lib.getAuthor() + "/" + lib.getID();
@@ -0,0 +1,208 @@
+package fluff.core.utils;
+
+/**
+ * Reusable formatter that fills a {@link StringTemplate} one argument at a time, so
+ * primitive arguments aren't boxed and no varargs array is allocated.
+ * <b>Example</b>: StringFormatter.get().start(template).arg(200).arg("OK").finish().
+ * Placeholders are filled in the order they appear in the template, so only templates whose placeholders
+ * take the arguments in order are supported, like "${} ${}" or "${0} ${1}".
+ * A formatter isn't thread safe, {@link #get()} returns the instance of the current thread.
+ */
+public class StringFormatter {
+    
+    /**
+     * Buffers that grew past this many characters are dropped instead of being kept by the thread.
+     */
+    private static final int MAX_BUFFER = 8192;
+    
+    private static final ThreadLocal<StringFormatter> LOCAL = ThreadLocal.withInitial(StringFormatter::new);
+    
+    private StringBuilder buffer = new StringBuilder(256);
+    
+    private StringBuilder sb;
+    private StringTemplate template;
+    private int placeholder;
+    
+    /**
+     * Gets the formatter of the current thread, which formats into a buffer reused by the thread.
+     *
+     * @return the formatter of the current thread
+     */
+    public static StringFormatter get() {
+        return LOCAL.get();
+    }
+    
+    /**
+     * Starts formatting the template into the buffer of this formatter, clearing it.
+     * The buffer is only valid until the next time this formatter is started.
+     *
+     * @param template the template to format
+     * @return this formatter
+     * @throws IllegalArgumentException if the template has named placeholders or indexes out of order
+     */
+    public StringFormatter start(StringTemplate template) {
+        if (buffer.capacity() > MAX_BUFFER) buffer = new StringBuilder(256);
+        buffer.setLength(0);
+        
+        return start(template, buffer);
+    }
+    
+    /**
+     * Starts formatting the template, appending it to the specified builder.
+     *
+     * @param template the template to format
+     * @param sb the builder to append to
+     * @return this formatter
+     * @throws IllegalArgumentException if the template has named placeholders or indexes out of order
+     */
+    public StringFormatter start(StringTemplate template, StringBuilder sb) {
+        if (!template.isSequential()) throw new IllegalArgumentException("Placeholders must take the arguments in order: " + template);
+        
+        this.template = template;
+        this.sb = sb;
+        this.placeholder = 1;
+        
+        sb.append(template.getLiteral(0));
+        return this;
+    }
+    
+    /**
+     * Formats the next placeholder with the specified argument.
+     *
+     * @param arg the argument
+     * @return this formatter
+     */
+    public StringFormatter arg(Object arg) {
+        if (!hasNext()) return this;
+        
+        sb.append(arg);
+        return next();
+    }
+    
+    /**
+     * Formats the next placeholder with the specified string.
+     *
+     * @param arg the argument
+     * @return this formatter
+     */
+    public StringFormatter arg(String arg) {
+        if (!hasNext()) return this;
+        
+        sb.append(arg);
+        return next();
+    }
+    
+    /**
+     * Formats the next placeholder with the specified characters.
+     *
+     * @param arg the argument
+     * @return this formatter
+     */
+    public StringFormatter arg(CharSequence arg) {
+        if (!hasNext()) return this;
+        
+        sb.append(arg);
+        return next();
+    }
+    
+    /**
+     * Formats the next placeholder with the specified int.
+     *
+     * @param arg the argument
+     * @return this formatter
+     */
+    public StringFormatter arg(int arg) {
+        if (!hasNext()) return this;
+        
+        sb.append(arg);
+        return next();
+    }
+    
+    /**
+     * Formats the next placeholder with the specified long.
+     *
+     * @param arg the argument
+     * @return this formatter
+     */
+    public StringFormatter arg(long arg) {
+        if (!hasNext()) return this;
+        
+        sb.append(arg);
+        return next();
+    }
+    
+    /**
+     * Formats the next placeholder with the specified double.
+     *
+     * @param arg the argument
+     * @return this formatter
+     */
+    public StringFormatter arg(double arg) {
+        if (!hasNext()) return this;
+        
+        sb.append(arg);
+        return next();
+    }
+    
+    /**
+     * Formats the next placeholder with the specified float, without widening it to a double.
+     *
+     * @param arg the argument
+     * @return this formatter
+     */
+    public StringFormatter arg(float arg) {
+        if (!hasNext()) return this;
+        
+        sb.append(arg);
+        return next();
+    }
+    
+    /**
+     * Formats the next placeholder with the specified boolean.
+     *
+     * @param arg the argument
+     * @return this formatter
+     */
+    public StringFormatter arg(boolean arg) {
+        if (!hasNext()) return this;
+        
+        sb.append(arg);
+        return next();
+    }
+    
+    /**
+     * Formats the next placeholder with the specified char.
+     *
+     * @param arg the argument
+     * @return this formatter
+     */
+    public StringFormatter arg(char arg) {
+        if (!hasNext()) return this;
+        
+        sb.append(arg);
+        return next();
+    }
+    
+    /**
+     * Finishes formatting, formatting the remaining placeholders as null.
+     *
+     * @return the builder the template was formatted into
+     */
+    public StringBuilder finish() {
+        if (hasNext()) sb.append("null");
+        StringBuilder result = template.appendFrom(sb, placeholder);
+        
+        template = null;
+        sb = null;
+        return result;
+    }
+    
+    private boolean hasNext() {
+        return placeholder <= template.getPlaceholders();
+    }
+    
+    private StringFormatter next() {
+        sb.append(template.getLiteral(placeholder++));
+        return this;
+    }
+}
@@ -0,0 +1,589 @@
+package fluff.core.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A precompiled {@link StringUtils#format(String, Object...)} template.
+ * The template is split once into the literal text between its placeholders,
+ * so formatting only appends the literals and the arguments.
+ * Templates are immutable and can be shared between threads.
+ * <p>
+ * Three kinds of placeholders are supported:
+ * <ul>
+ * <li>${} is replaced by the next positional argument</li>
+ * <li>${0} is replaced by the argument at the specified index</li>
+ * <li>${name} is replaced by the value of the name, when formatting with named values;
+ * it's left as is when formatting with positional arguments</li>
+ * </ul>
+ * Names can contain letters, digits, '_', '-' and '.'. Anything else between ${ and } is literal text.
+ */
+public class StringTemplate {
+    
+    /**
+     * The number of characters reserved for each argument when sizing the output.
+     */
+    private static final int ARGUMENT_LENGTH = 16;
+    
+    private final String template;
+    private final String[] literals;
+    private final String[] placeholders;
+    private final int[] positions;
+    private final String[] names;
+    private final int length;
+    
+    private StringTemplate(String template, List<String> literals, List<String> placeholders) {
+        this.template = template;
+        this.literals = literals.toArray(new String[0]);
+        this.placeholders = placeholders.toArray(new String[0]);
+        this.positions = new int[this.placeholders.length];
+        this.names = new String[this.placeholders.length];
+        
+        int next = 0;
+        for (int i = 0; i < this.placeholders.length; i++) {
+            String content = this.placeholders[i].substring(2, this.placeholders[i].length() - 1);
+            
+            if (content.isEmpty()) {
+                positions[i] = next++;
+            } else if (isIndex(content)) {
+                positions[i] = Integer.parseInt(content);
+            } else {
+                positions[i] = -1;
+                names[i] = content;
+            }
+        }
+        
+        int length = 0;
+        for (String literal : this.literals) {
+            length += literal.length();
+        }
+        this.length = length;
+    }
+    
+    /**
+     * Compiles the specified template.
+     *
+     * @param template the template to compile
+     * @return the compiled template
+     */
+    public static StringTemplate compile(String template) {
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        
+        int start = 0;
+        int i = template.indexOf("${");
+        while (i != -1) {
+            int end = template.indexOf('}', i + 2);
+            if (end == -1) break;
+            
+            if (!isPlaceholder(template, i + 2, end)) {
+                i = template.indexOf("${", i + 1);
+                continue;
+            }
+            
+            literals.add(template.substring(start, i));
+            placeholders.add(template.substring(i, end + 1));
+            
+            start = end + 1; // skip the placeholder
+            i = template.indexOf("${", start);
+        }
+        literals.add(template.substring(start));
+        
+        return new StringTemplate(template, literals, placeholders);
+    }
+    
+    /**
+     * Formats the template with the provided arguments.
+     * Missing arguments are formatted as null.
+     *
+     * @param args the arguments to insert into the template
+     * @return the formatted string
+     */
+    public String format(Object... args) {
+        if (args == null) return template;
+        if (literals.length == 1) return literals[0];
+        
+        return appendTo(newBuilder(), args).toString();
+    }
+    
+    /**
+     * Formats the template with one argument, without allocating a varargs array.
+     *
+     * @param arg0 the first argument
+     * @return the formatted string
+     */
+    public String format(Object arg0) {
+        return format(arg0, null, null);
+    }
+    
+    /**
+     * Formats the template with two arguments, without allocating a varargs array.
+     *
+     * @param arg0 the first argument
+     * @param arg1 the second argument
+     * @return the formatted string
+     */
+    public String format(Object arg0, Object arg1) {
+        return format(arg0, arg1, null);
+    }
+    
+    /**
+     * Formats the template with three arguments, without allocating a varargs array.
+     *
+     * @param arg0 the first argument
+     * @param arg1 the second argument
+     * @param arg2 the third argument
+     * @return the formatted string
+     */
+    public String format(Object arg0, Object arg1, Object arg2) {
+        if (literals.length == 1) return literals[0];
+        
+        return appendTo(newBuilder(), arg0, arg1, arg2).toString();
+    }
+    
+    /**
+     * Formats the template with an int argument, without boxing it.
+     *
+     * @param arg the argument
+     * @return the formatted string
+     */
+    public String format(int arg) {
+        if (literals.length == 1) return literals[0];
+        
+        return appendTo(newBuilder(), arg).toString();
+    }
+    
+    /**
+     * Formats the template with a long argument, without boxing it.
+     *
+     * @param arg the argument
+     * @return the formatted string
+     */
+    public String format(long arg) {
+        if (literals.length == 1) return literals[0];
+        
+        return appendTo(newBuilder(), arg).toString();
+    }
+    
+    /**
+     * Formats the template with a double argument, without boxing it.
+     *
+     * @param arg the argument
+     * @return the formatted string
+     */
+    public String format(double arg) {
+        if (literals.length == 1) return literals[0];
+        
+        return appendTo(newBuilder(), arg).toString();
+    }
+    
+    /**
+     * Formats the template with a boolean argument, without boxing it.
+     *
+     * @param arg the argument
+     * @return the formatted string
+     */
+    public String format(boolean arg) {
+        if (literals.length == 1) return literals[0];
+        
+        return appendTo(newBuilder(), arg).toString();
+    }
+    
+    /**
+     * Formats the template with a char argument, without boxing it or formatting it as a number.
+     *
+     * @param arg the argument
+     * @return the formatted string
+     */
+    public String format(char arg) {
+        if (literals.length == 1) return literals[0];
+        
+        return appendTo(newBuilder(), arg).toString();
+    }
+    
+    /**
+     * Formats the template with a float argument, without boxing it or widening it to a double.
+     *
+     * @param arg the argument
+     * @return the formatted string
+     */
+    public String format(float arg) {
+        if (literals.length == 1) return literals[0];
+        
+        return appendTo(newBuilder(), arg).toString();
+    }
+    
+    /**
+     * Formats the template with named values. Positional placeholders are formatted as null.
+     *
+     * @param values the values of the named placeholders
+     * @return the formatted string
+     */
+    public String formatNamed(Map<String, ?> values) {
+        return formatNamed(values::get);
+    }
+    
+    /**
+     * Formats the template with named values. Positional placeholders are formatted as null.
+     *
+     * @param values the function returning the value of each named placeholder
+     * @return the formatted string
+     */
+    public String formatNamed(Function<String, ?> values) {
+        if (literals.length == 1) return literals[0];
+        
+        StringBuilder sb = newBuilder();
+        try {
+            append(sb, null, values);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // never thrown by a StringBuilder
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * Appends the template formatted with the provided arguments to the specified builder.
+     *
+     * @param sb the builder to append to
+     * @param args the arguments to insert into the template
+     * @return the builder
+     */
+    public StringBuilder appendTo(StringBuilder sb, Object... args) {
+        if (args == null) return sb.append(template);
+        
+        try {
+            append(sb, args, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // never thrown by a StringBuilder
+        }
+        return sb;
+    }
+    
+    /**
+     * Appends the template formatted with one argument to the specified builder.
+     *
+     * @param sb the builder to append to
+     * @param arg0 the first argument
+     * @return the builder
+     */
+    public StringBuilder appendTo(StringBuilder sb, Object arg0) {
+        return appendTo(sb, arg0, null, null);
+    }
+    
+    /**
+     * Appends the template formatted with two arguments to the specified builder.
+     *
+     * @param sb the builder to append to
+     * @param arg0 the first argument
+     * @param arg1 the second argument
+     * @return the builder
+     */
+    public StringBuilder appendTo(StringBuilder sb, Object arg0, Object arg1) {
+        return appendTo(sb, arg0, arg1, null);
+    }
+    
+    /**
+     * Appends the template formatted with three arguments to the specified builder.
+     *
+     * @param sb the builder to append to
+     * @param arg0 the first argument
+     * @param arg1 the second argument
+     * @param arg2 the third argument
+     * @return the builder
+     */
+    public StringBuilder appendTo(StringBuilder sb, Object arg0, Object arg1, Object arg2) {
+        sb.append(literals[0]);
+        for (int i = 0; i < placeholders.length; i++) {
+            int position = positions[i];
+            
+            if (position == 0) sb.append(arg0);
+            else if (position == 1) sb.append(arg1);
+            else if (position == 2) sb.append(arg2);
+            else appendMissing(sb, i);
+            
+            sb.append(literals[i + 1]);
+        }
+        return sb;
+    }
+    
+    /**
+     * Appends the template formatted with an int argument to the specified builder, without boxing it.
+     *
+     * @param sb the builder to append to
+     * @param arg the argument
+     * @return the builder
+     */
+    public StringBuilder appendTo(StringBuilder sb, int arg) {
+        sb.append(literals[0]);
+        for (int i = 0; i < placeholders.length; i++) {
+            if (positions[i] == 0) sb.append(arg);
+            else appendMissing(sb, i);
+            
+            sb.append(literals[i + 1]);
+        }
+        return sb;
+    }
+    
+    /**
+     * Appends the template formatted with a long argument to the specified builder, without boxing it.
+     *
+     * @param sb the builder to append to
+     * @param arg the argument
+     * @return the builder
+     */
+    public StringBuilder appendTo(StringBuilder sb, long arg) {
+        sb.append(literals[0]);
+        for (int i = 0; i < placeholders.length; i++) {
+            if (positions[i] == 0) sb.append(arg);
+            else appendMissing(sb, i);
+            
+            sb.append(literals[i + 1]);
+        }
+        return sb;
+    }
+    
+    /**
+     * Appends the template formatted with a double argument to the specified builder, without boxing it.
+     *
+     * @param sb the builder to append to
+     * @param arg the argument
+     * @return the builder
+     */
+    public StringBuilder appendTo(StringBuilder sb, double arg) {
+        sb.append(literals[0]);
+        for (int i = 0; i < placeholders.length; i++) {
+            if (positions[i] == 0) sb.append(arg);
+            else appendMissing(sb, i);
+            
+            sb.append(literals[i + 1]);
+        }
+        return sb;
+    }
+    
+    /**
+     * Appends the template formatted with a boolean argument to the specified builder, without boxing it.
+     *
+     * @param sb the builder to append to
+     * @param arg the argument
+     * @return the builder
+     */
+    public StringBuilder appendTo(StringBuilder sb, boolean arg) {
+        sb.append(literals[0]);
+        for (int i = 0; i < placeholders.length; i++) {
+            if (positions[i] == 0) sb.append(arg);
+            else appendMissing(sb, i);
+            
+            sb.append(literals[i + 1]);
+        }
+        return sb;
+    }
+    
+    /**
+     * Appends the template formatted with a char argument to the specified builder, without boxing it or formatting it as a number.
+     *
+     * @param sb the builder to append to
+     * @param arg the argument
+     * @return the builder
+     */
+    public StringBuilder appendTo(StringBuilder sb, char arg) {
+        sb.append(literals[0]);
+        for (int i = 0; i < placeholders.length; i++) {
+            if (positions[i] == 0) sb.append(arg);
+            else appendMissing(sb, i);
+            
+            sb.append(literals[i + 1]);
+        }
+        return sb;
+    }
+    
+    /**
+     * Appends the template formatted with a float argument to the specified builder, without boxing it or widening it to a double.
+     *
+     * @param sb the builder to append to
+     * @param arg the argument
+     * @return the builder
+     */
+    public StringBuilder appendTo(StringBuilder sb, float arg) {
+        sb.append(literals[0]);
+        for (int i = 0; i < placeholders.length; i++) {
+            if (positions[i] == 0) sb.append(arg);
+            else appendMissing(sb, i);
+            
+            sb.append(literals[i + 1]);
+        }
+        return sb;
+    }
+    
+    /**
+     * Appends the template formatted with the provided arguments to the specified appendable.
+     *
+     * @param out the appendable to append to
+     * @param args the arguments to insert into the template
+     * @return the appendable
+     * @throws IOException if an I/O error occurs
+     */
+    public Appendable appendTo(Appendable out, Object... args) throws IOException {
+        if (out instanceof StringBuilder sb) return appendTo(sb, args);
+        if (args == null) return out.append(template);
+        
+        return append(out, args, null);
+    }
+    
+    /**
+     * Writes the template formatted with the provided arguments to the specified writer.
+     * The literals and the arguments are written one at a time, so the formatted text
+     * is never held in memory as a whole.
+     *
+     * @param out the writer to write to
+     * @param args the arguments to insert into the template
+     * @throws IOException if an I/O error occurs
+     */
+    public void formatTo(Writer out, Object... args) throws IOException {
+        if (args == null) {
+            out.write(template);
+            return;
+        }
+        
+        append(out, args, null);
+    }
+    
+    /**
+     * Writes the template formatted with named values to the specified writer.
+     * The literals and the values are written one at a time, so the formatted text
+     * is never held in memory as a whole.
+     *
+     * @param out the writer to write to
+     * @param values the values of the named placeholders
+     * @throws IOException if an I/O error occurs
+     */
+    public void formatNamedTo(Writer out, Map<String, ?> values) throws IOException {
+        append(out, null, values::get);
+    }
+    
+    /**
+     * Writes the template formatted with named values to the specified writer.
+     * The literals and the values are written one at a time, so the formatted text
+     * is never held in memory as a whole.
+     *
+     * @param out the writer to write to
+     * @param values the function returning the value of each named placeholder
+     * @throws IOException if an I/O error occurs
+     */
+    public void formatNamedTo(Writer out, Function<String, ?> values) throws IOException {
+        append(out, null, values);
+    }
+    
+    private Appendable append(Appendable out, Object[] args, Function<String, ?> values) throws IOException {
+        out.append(literals[0]);
+        for (int i = 0; i < placeholders.length; i++) {
+            int position = positions[i];
+            
+            if (position != -1) {
+                out.append(String.valueOf(args != null && position < args.length ? args[position] : null));
+            } else if (values != null) {
+                out.append(String.valueOf(values.apply(names[i])));
+            } else {
+                out.append(placeholders[i]);
+            }
+            
+            out.append(literals[i + 1]);
+        }
+        return out;
+    }
+    
+    private void appendMissing(StringBuilder sb, int placeholder) {
+        sb.append(names[placeholder] != null ? placeholders[placeholder] : "null");
+    }
+    
+    /**
+     * Appends the literal text after the specified placeholder, followed by the
+     * rest of the template with its remaining placeholders formatted as null.
+     *
+     * @param sb the builder to append to
+     * @param placeholder the index of the placeholder, starting at 1
+     * @return the builder
+     */
+    StringBuilder appendFrom(StringBuilder sb, int placeholder) {
+        if (placeholder >= literals.length) return sb;
+        
+        sb.append(literals[placeholder]);
+        for (int i = placeholder + 1; i < literals.length; i++) {
+            sb.append("null");
+            sb.append(literals[i]);
+        }
+        return sb;
+    }
+    
+    /**
+     * Checks if each placeholder takes the next argument, in the order they appear,
+     * so the template can be filled one argument at a time.
+     *
+     * @return true if every placeholder is ${} or the index of its position, false otherwise
+     */
+    boolean isSequential() {
+        for (int i = 0; i < positions.length; i++) {
+            if (positions[i] != i) return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Gets the literal text before the specified placeholder, or after the last one.
+     *
+     * @param index the index of the literal
+     * @return the literal text
+     */
+    String getLiteral(int index) {
+        return literals[index];
+    }
+    
+    private StringBuilder newBuilder() {
+        return new StringBuilder(length + getPlaceholders() * ARGUMENT_LENGTH);
+    }
+    
+    /**
+     * Gets the number of placeholders in the template.
+     *
+     * @return the number of placeholders
+     */
+    public int getPlaceholders() {
+        return placeholders.length;
+    }
+    
+    /**
+     * Gets the template this was compiled from.
+     *
+     * @return the template
+     */
+    public String getTemplate() {
+        return template;
+    }
+    
+    @Override
+    public String toString() {
+        return template;
+    }
+    
+    private static boolean isPlaceholder(String template, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = template.charAt(i);
+            
+            if (!Character.isLetterOrDigit(c) && c != '_' && c != '-' && c != '.') return false;
+        }
+        return true;
+    }
+    
+    private static boolean isIndex(String content) {
+        if (content.length() > 9) return false; // fits an int
+        
+        for (int i = 0; i < content.length(); i++) {
+            if (content.charAt(i) < '0' || content.charAt(i) > '9') return false;
+        }
+        return true;
+    }
+}
@@ -1,13 +1,37 @@
 package fluff.core.utils;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
 /**
  * A utility class for string manipulation.
  */
 public class StringUtils {
     
+    /**
+     * The maximum number of compiled templates kept by {@link #format(String, Object...)}.
+     * When it's full, the templates that weren't used since the last eviction are evicted first,
+     * an approximation of least recently used that keeps the reads lock free.
+     */
+    private static final int CACHE_SIZE = 512;
+    
+    /**
+     * Longer templates are usually built at runtime and not reused, so they aren't cached.
+     */
+    private static final int CACHE_MAX_LENGTH = 1024;
+    
+    private static final Map<String, Cached> CACHE = new ConcurrentHashMap<>(CACHE_SIZE * 4 / 3 + 1);
+    private static final Object EVICTION = new Object();
+    
     /**
      * Formats a string with the provided arguments.
      * <b>Example</b>: format("${} ${}", "Hello", "World!") equals "Hello World!".
+     * Arguments can also be referenced by index, format("${1} ${0}", "World!", "Hello") equals "Hello World!".
+     * The compiled templates of the texts are cached.
      *
      * @param text the text to format
      * @param args the arguments to insert into the text
@@ -16,28 +40,154 @@ public class StringUtils {
     public static String format(String text, Object... args) {
         if (text == null || args == null) return text;
         
-        StringBuilder sb = new StringBuilder();
-        int arg = 0;
-        for (int i = 0; i < text.length(); i++) {
-            char c0 = text.charAt(i);
+        return compile(text).format(args);
+    }
+    
+    /**
+     * Formats a string with one argument, without allocating a varargs array.
+     * Primitive arguments are boxed, so they're formatted like {@link String#valueOf(Object)};
+     * use {@link StringTemplate#format(int)} and its siblings to format them without boxing.
+     *
+     * @param text the text to format
+     * @param arg0 the first argument
+     * @return the formatted string
+     */
+    public static String format(String text, Object arg0) {
+        if (text == null) return text;
+        
+        return compile(text).format(arg0);
+    }
+    
+    /**
+     * Formats a string with two arguments, without allocating a varargs array.
+     *
+     * @param text the text to format
+     * @param arg0 the first argument
+     * @param arg1 the second argument
+     * @return the formatted string
+     */
+    public static String format(String text, Object arg0, Object arg1) {
+        if (text == null) return text;
+        
+        return compile(text).format(arg0, arg1);
+    }
+    
+    /**
+     * Formats a string with three arguments, without allocating a varargs array.
+     *
+     * @param text the text to format
+     * @param arg0 the first argument
+     * @param arg1 the second argument
+     * @param arg2 the third argument
+     * @return the formatted string
+     */
+    public static String format(String text, Object arg0, Object arg1, Object arg2) {
+        if (text == null) return text;
+        
+        return compile(text).format(arg0, arg1, arg2);
+    }
+    
+    /**
+     * Formats a string with named values.
+     * <b>Example</b>: formatNamed("${greeting} ${name}", Map.of("greeting", "Hello", "name", "World!")) equals "Hello World!".
+     *
+     * @param text the text to format
+     * @param values the values of the named placeholders
+     * @return the formatted string
+     */
+    public static String formatNamed(String text, Map<String, ?> values) {
+        if (text == null || values == null) return text;
+        
+        return compile(text).formatNamed(values);
+    }
+    
+    /**
+     * Formats a string with named values.
+     *
+     * @param text the text to format
+     * @param values the function returning the value of each named placeholder
+     * @return the formatted string
+     */
+    public static String formatNamed(String text, Function<String, ?> values) {
+        if (text == null || values == null) return text;
+        
+        return compile(text).formatNamed(values);
+    }
+    
+    /**
+     * Writes a string formatted with the provided arguments to the specified writer,
+     * without building the whole formatted string in memory.
+     *
+     * @param out the writer to write to
+     * @param text the text to format
+     * @param args the arguments to insert into the text
+     * @throws IOException if an I/O error occurs
+     */
+    public static void formatTo(Writer out, String text, Object... args) throws IOException {
+        if (text == null) {
+            out.append(text);
+            return;
+        }
+        
+        compile(text).formatTo(out, args);
+    }
+    
+    /**
+     * Compiles a template for {@link #format(String, Object...)}, to format it repeatedly without parsing it again.
+     * Templates are taken from the same cache used by format.
+     *
+     * @param template the template to compile
+     * @return the compiled template
+     */
+    public static StringTemplate compile(String template) {
+        if (template.length() > CACHE_MAX_LENGTH) return StringTemplate.compile(template);
+        
+        Cached cached = CACHE.get(template);
+        if (cached != null) {
+            if (!cached.used) cached.used = true;
+            return cached.template;
+        }
+        
+        StringTemplate compiled = StringTemplate.compile(template);
+        
+        if (CACHE.size() >= CACHE_SIZE) evict();
+        CACHE.putIfAbsent(template, new Cached(compiled));
+        return compiled;
+    }
+    
+    /**
+     * Evicts an eighth of the cache, second chance style: templates used since the last eviction
+     * are kept and marked unused, the others are removed. If that's not enough, the first ones
+     * found are removed regardless. Only misses of a full cache take the lock.
+     */
+    private static void evict() {
+        synchronized (EVICTION) {
+            int target = CACHE_SIZE - CACHE_SIZE / 8;
             
-            if (c0 == '$' && i + 2 < text.length()) {
-                char c1 = text.charAt(i + 1);
-                char c2 = text.charAt(i + 2);
-                
-                if (c1 == '{' && c2 == '}') {
-                    Object o = arg < args.length ? args[arg] : null;
-                    arg++;
-                    
-                    sb.append(o);
+            for (int pass = 0; CACHE.size() > target; pass++) {
+                Iterator<Cached> it = CACHE.values().iterator();
+                while (it.hasNext() && CACHE.size() > target) {
+                    Cached cached = it.next();
                     
-                    i += 2; // skip {}
-                    continue;
+                    if (pass == 0 && cached.used) cached.used = false;
+                    else it.remove();
                 }
             }
-            
-            sb.append(c0);
         }
-        return sb.toString();
+    }
+    
+    private static class Cached {
+        
+        private final StringTemplate template;
+        
+        /**
+         * Set when the template is used, cleared by the eviction. Not volatile, a missed update only
+         * makes the eviction less accurate.
+         */
+        private boolean used;
+        
+        private Cached(StringTemplate template) {
+            this.template = template;
+        }
     }
 }
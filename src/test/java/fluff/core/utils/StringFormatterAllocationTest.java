@@ -0,0 +1,86 @@
+package fluff.core.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Checks that formatting with primitive arguments into a reused buffer doesn't allocate,
+ * using the allocated bytes counter of the current thread.
+ */
+class StringFormatterAllocationTest {
+    
+    /**
+     * Runs before measuring, so the formatting code is compiled and the thread local formatter exists.
+     */
+    private static final int WARMUP = 100_000;
+    private static final int ITERATIONS = 10_000;
+    
+    private static final StringTemplate TEMPLATE = StringTemplate.compile("id=${} count=${} ratio=${} scale=${} ok=${} c=${}");
+    private static final StringTemplate SINGLE = StringTemplate.compile("value=${}");
+    
+    private static ThreadMXBean threads;
+    
+    @BeforeAll
+    static void setUp() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof ThreadMXBean);
+        
+        threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+    
+    @Test
+    void formatterIntoCallerBuffer() {
+        StringBuilder sb = new StringBuilder(256);
+        
+        assertNoAllocation(() -> {
+            sb.setLength(0);
+            StringFormatter.get().start(TEMPLATE, sb).arg(42).arg(123456789L).arg(0.5).arg(1.5f).arg(true).arg('c').finish();
+        });
+        assertEquals("id=42 count=123456789 ratio=0.5 scale=1.5 ok=true c=c", sb.toString());
+    }
+    
+    @Test
+    void formatterIntoThreadBuffer() {
+        assertNoAllocation(() -> StringFormatter.get().start(TEMPLATE).arg(-7).arg(-1L).arg(2.25).arg(0.125f).arg(false).arg('x').finish());
+    }
+    
+    @Test
+    void templatePrimitiveOverloads() {
+        StringBuilder sb = new StringBuilder(256);
+        
+        assertNoAllocation(() -> {
+            sb.setLength(0);
+            SINGLE.appendTo(sb, 42);
+            SINGLE.appendTo(sb, 3L);
+            SINGLE.appendTo(sb, 1.25);
+            SINGLE.appendTo(sb, 1.5f);
+            SINGLE.appendTo(sb, true);
+            SINGLE.appendTo(sb, 'x');
+        });
+        assertEquals("value=42value=3value=1.25value=1.5value=truevalue=x", sb.toString());
+    }
+    
+    private static void assertNoAllocation(Runnable format) {
+        for (int i = 0; i < WARMUP; i++) {
+            format.run();
+        }
+        
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            format.run();
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        
+        // the counter itself can report a few bytes once, any allocation per call is at least 16 bytes each time
+        assertEquals(0, allocated / ITERATIONS, "allocated " + allocated + " bytes over " + ITERATIONS + " calls");
+    }
+}